@@ -1,11 +1,18 @@
 package marvel;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.cli.*;
 
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.stage.Stage;
+import marvel.orchestrator.BatchRunner;
+import marvel.orchestrator.Orchestrator;
 import marvel.visualization.MarvelController;
+import marvel.visualization.sparkfx.TextWidths;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
@@ -71,7 +78,21 @@ public class Main extends Application {
         		new Option("s", "split", true, "dataset file path"),
         		new Option("K", "keycol", true, "column number of the key inside the dataset file"),
         		new Option("V", "valuecol", true, "column number of the value inside the dataset file"),
-        		new Option("r", "rowsize", true, "maximum number of nodes per row")
+        		new Option("r", "rowsize", true, "maximum number of nodes per row"),
+        		new Option("p", "pipeline", true, "comma separated list of operations, executed without visualization "
+        				+ "(e.g. \"Split,ReduceByKey + Sum\")"),
+        		new Option("c", "condition", true, "condition of the filter operations in the pipeline (>, <, =, !=)"),
+        		new Option("x", "value", true, "value of the filter operations in the pipeline"),
+        		new Option("t", "take", true, "number of records printed for each stage of the pipeline"),
+        		new Option("P", "partitions", true, "(minimum) number of partitions of the dataset in the pipeline "
+        				+ "(default: number of nodes)"),
+        		new Option("S", "seed", true, "seed of the random dataset in the pipeline"),
+        		new Option("M", "mapped", false, "reads the input file of the pipeline from the local disk, "
+        				+ "memory mapped and parsed by multiple threads"),
+        		new Option("I", "inspect", false, "executes each operation of the pipeline as a separate stage, "
+        				+ "instead of fusing the consecutive map operations"),
+        		new Option("w", "widths", true, "fields measured to size the records in the visualization: "
+        				+ "all, sample or longest (default: all)")
         };
         
         for (Option option : option_array) options.addOption(option);        
@@ -102,6 +123,64 @@ public class Main extends Application {
 		valuecol = cmd.getOptionValue("V", "2");
 		rowsize = Integer.parseInt(cmd.getOptionValue("r", "6"));
 		
+		if (cmd.hasOption('p')) {
+			runPipeline(cmd);
+			return;
+		}
+		
+		try {
+			TextWidths.setEstimate(TextWidths.Estimate.valueOf(cmd.getOptionValue("w", "all").toUpperCase()));
+		} catch (IllegalArgumentException e) {
+			System.out.println("Unknown widths estimate: " + cmd.getOptionValue("w"));
+			formatter.printHelp("utility-name", options);
+
+			System.exit(1);
+		}
+		
 		launch(args);
 	}
+	
+	/**
+	 * Runs the pipeline on the Spark system, with no visualization.
+	 */
+	private static void runPipeline(CommandLine cmd) {
+		List<String> pipeline = new ArrayList<>();
+		
+		for (String operation : cmd.getOptionValue('p').split(","))
+			if (!operation.trim().isEmpty() && !operation.trim().equals("Generate"))
+				pipeline.add(operation.trim());
+		
+		Orchestrator orchestrator = new Orchestrator(Integer.parseInt(nodes));
+		int status = 0;
+		
+		// any error, of the options or of Spark, ends the run with its message
+		try {
+			BatchRunner runner = new BatchRunner(orchestrator, System.out, Integer.parseInt(cmd.getOptionValue("t", "10")), 
+					cmd.hasOption('I'));
+			
+			long start = System.nanoTime();
+			
+			if (input != null && cmd.hasOption('M'))
+				orchestrator.createRDDfromLocalFile(Integer.parseInt(datasize), new File(input), split.trim(), 
+						Integer.parseInt(keycol), Integer.parseInt(valuecol));
+			else if (input != null)
+				orchestrator.createRDDfromFile(Integer.parseInt(datasize), new File(input), split.trim(), 
+						Integer.parseInt(keycol), Integer.parseInt(valuecol), 
+						Integer.parseInt(cmd.getOptionValue("P", nodes)));
+			else
+				orchestrator.createRandomRDD(keytype, valuetype, Integer.parseInt(datasize), 
+						Long.parseLong(cmd.getOptionValue("S", System.nanoTime() + "")), 
+						Integer.parseInt(cmd.getOptionValue("P", nodes)));
+			
+			runner.printInput("Generate", (System.nanoTime() - start) / 1000000);
+			runner.run(pipeline, cmd.getOptionValue("c", ">"), cmd.getOptionValue("x", "0"));
+		} catch (Exception e) {
+			System.out.println(e.getMessage() != null ? e.getMessage() : e.toString());
+			status = 1;
+		} finally {
+			orchestrator.stop();
+		}
+		
+		System.exit(status);
+	}
 }
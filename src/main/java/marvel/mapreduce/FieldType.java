@@ -0,0 +1,98 @@
+package marvel.mapreduce;
+
+/**
+ * Type of a key or value column. The values of a column are parsed once,
+ * when the dataset is created, into the Java type of the column.
+ *
+ * @author Francesco Palini
+ */
+
+public enum FieldType {
+
+	NONE("-"), INTEGER("Integer"), LONG("Long"), DOUBLE("Double"), STRING("String");
+
+	private String name;
+
+	private FieldType(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Type from its name, as shown in the key and value type lists.
+	 */
+	public static FieldType fromName(String name) {
+		for (FieldType type : values())
+			if (type.name.equals(name))
+				return type;
+
+		throw new IllegalArgumentException("Unknown type: " + name);
+	}
+
+	/**
+	 * Narrowest type of the string: an integer if it is parsed as a long, a double if it is parsed as a double
+	 * (as by the Min, Max and Sum operations on the strings), a string otherwise.
+	 */
+	public static FieldType of(String s) {
+		if (s == null) return NONE;
+
+		try {
+			long l = Long.parseLong(s);
+
+			return l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE ? INTEGER : LONG;
+		} catch (NumberFormatException e) { } // not an integer, or out of the range of a long
+
+		try {
+			Double.parseDouble(s);
+
+			return DOUBLE;
+		} catch (NumberFormatException e) { }
+
+		return STRING;
+	}
+
+	/**
+	 * Narrowest type that can represent the values of both types: integers and doubles are widened to doubles.
+	 */
+	public FieldType widen(FieldType type) {
+		if (this == NONE) return type;
+		if (type == NONE || type == this) return this;
+
+		if (isIntegral() && type.isIntegral()) return LONG;
+		if (isNumeric() && type.isNumeric()) return DOUBLE;
+
+		return STRING;
+	}
+
+	/**
+	 * Value of the string with this type. A number that is not formatted back as the same string
+	 * is a {@link Numeral}, which keeps the string.
+	 */
+	public Object parse(String s) {
+		if (s == null) return null;
+
+		Number number;
+
+		switch (this) {
+		case INTEGER: number = Integer.parseInt(s); break;
+		case LONG: number = Long.parseLong(s); break;
+		case DOUBLE: number = Double.parseDouble(s); break;
+		case STRING: return s;
+		default: return null;
+		}
+
+		return number.toString().equals(s) ? number : new Numeral(number, s);
+	}
+
+	public boolean isNumeric() {
+		return this == INTEGER || this == LONG || this == DOUBLE;
+	}
+
+	public boolean isIntegral() {
+		return this == INTEGER || this == LONG;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,183 @@
+package marvel.mapreduce;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+import scala.Tuple2;
+
+/**
+ * Record-level functions shared by the Spark transformations and the JavaFX animations,
+ * so that both compute exactly the same result.
+ *
+ * @author Francesco Palini
+ */
+
+public final class Functions {
+
+	private Functions() { }
+
+	/**
+	 * Filter condition on a typed field.
+	 *
+	 * @param operand the value of the condition, as returned by {@link #operand(String, String, FieldType)}.
+	 */
+	public static boolean filterEval(String condition, Object field, Object operand) {
+		switch (condition) {
+		case ">":
+			return (field == null ? Double.MIN_VALUE : ((Number) field).doubleValue()) > (Double) operand;
+		case "<":
+			return (field == null ? Double.MAX_VALUE : ((Number) field).doubleValue()) < (Double) operand;
+		case "=":
+			return field != null && field.equals(operand);
+		case "!=":
+			return field == null || !field.equals(operand);
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Parses the value of a filter condition once, with the type of the filtered field.
+	 */
+	public static Object operand(String condition, String value, FieldType type) {
+		if (condition.equals(">") || condition.equals("<"))
+			return Double.parseDouble(value);
+
+		try {
+			return type.parse(value);
+		} catch (NumberFormatException e) { return value; } // it is never equal to the field
+	}
+
+	/**
+	 * Sum of two numbers, as integers if both of them are integers.
+	 */
+	public static String add(String value1, String value2) {
+		if (FieldType.of(value1).isIntegral() && FieldType.of(value2).isIntegral())
+			return Long.parseLong(value1) + Long.parseLong(value2) + "";
+
+		return Double.parseDouble(value1) + Double.parseDouble(value2) + "";
+	}
+
+	/**
+	 * Key and value of a line of the input file, already split into fields.
+	 *
+	 * @param keyColumn column of the key, starting from 1; 0 if the records have no key.
+	 */
+	public static Tuple2<String, String> record(String[] fields, int keyColumn, int valueColumn) {
+		if (fields.length == 1)
+			return new Tuple2<>(null, fields[0]);
+
+		return new Tuple2<>(keyColumn == 0 ? null : fields[keyColumn-1].trim(), fields[valueColumn-1].trim());
+	}
+
+	/**
+	 * Records of a partition from the given position, at most limit of them.
+	 */
+	public static <T> Iterator<T> window(Iterator<T> records, long offset, int limit) {
+		List<T> window = new ArrayList<>();
+
+		for (long i = 0; i < offset && records.hasNext(); i++)
+			records.next();
+
+		while (window.size() < limit && records.hasNext())
+			window.add(records.next());
+
+		return window.iterator();
+	}
+
+	/**
+	 * The first n records of a partition, read lazily: the following ones are never read.
+	 */
+	public static <T> Iterator<T> head(Iterator<T> records, long n) {
+		return new Iterator<T>() {
+			private long read = 0;
+
+			@Override
+			public boolean hasNext() {
+				return read < n && records.hasNext();
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) throw new NoSuchElementException();
+
+				read++;
+				return records.next();
+			}
+		};
+	}
+
+	/**
+	 * Number of lines of a partition, already split into fields, before the first line with an empty first field
+	 * (at most limit of them), and 1 if such a line was found, 0 otherwise.
+	 */
+	public static long[] prefix(Iterator<String[]> lines, long limit) {
+		long n = 0;
+
+		while (n < limit && lines.hasNext()) {
+			String[] fields = lines.next();
+
+			if (fields.length == 0 || fields[0].equals("")) return new long[] { n, 1 };
+
+			n++;
+		}
+
+		return new long[] { n, 0 };
+	}
+
+	public static long count(Iterator<?> records) {
+		long count = 0;
+
+		for (; records.hasNext(); records.next())
+			count++;
+
+		return count;
+	}
+
+	public static String format(Object field) {
+		return field == null ? null : field.toString();
+	}
+
+	/**
+	 * Words of a line, as produced by the Split operator.
+	 */
+	public static List<String> split(String line) {
+		List<String> words = new ArrayList<>();
+
+		for (String token : line.split(" "))
+			words.add(token.trim().toLowerCase());
+
+		return words;
+	}
+
+	/**
+	 * Ordered pairs of the values of a list, as produced by the FlatMapToPair operator.
+	 * A list with less than two values produces no pairs.
+	 */
+	public static List<String> pairs(String stringArray) {
+		List<String> pairs = new ArrayList<>();
+		String[] array = stringToOrderedSet(stringArray).toArray(new String[0]);
+
+		for (int i = 0; i < array.length-1; i++)
+			for (int j = i+1; j < array.length; j++)
+				pairs.add(array[i] + ", " + array[j]);
+
+		return pairs;
+	}
+
+	public static TreeSet<String> stringToOrderedSet(String stringArray) {
+		TreeSet<String> strings = new TreeSet<>();
+
+		for (String s : stringArray.split(", "))
+		      strings.add(s);
+
+		return strings;
+	}
+
+	public static String join(TreeSet<String> values) {
+		return values.toString().substring(1, values.toString().length()-1);
+	}
+}
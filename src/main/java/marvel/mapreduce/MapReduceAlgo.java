@@ -1,18 +1,26 @@
 package marvel.mapreduce;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
+import org.apache.spark.SparkJobInfo;
+import org.apache.spark.SparkStageInfo;
 import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.JavaSparkStatusTracker;
 
 import scala.Tuple2;
 
 public class MapReduceAlgo {
 	
 	private JavaSparkContext jsc;
-	private JavaPairRDD<String, String> fromRDD, toRDD;
+	private JavaPairRDD<Object, Object> fromRDD, toRDD;
+	private Schema fromSchema, toSchema;
 	
 	public MapReduceAlgo(int nExecutors) {
 		Logger.getLogger("org").setLevel(Level.ERROR);
@@ -21,15 +29,184 @@ public class MapReduceAlgo {
 		jsc = new JavaSparkContext("local[" + nExecutors + "]", "MARVEL");
 	}
 
-	public JavaPairRDD<String, String> getFromRDD() { return fromRDD; }
+	public JavaPairRDD<Object, Object> getFromRDD() { return fromRDD; }
 	
-	public JavaPairRDD<String, String> getToRDD() { return toRDD; }
+	public JavaPairRDD<Object, Object> getToRDD() { return toRDD; }
 	
-	public void setFromRDD(JavaPairRDD<String, String> rdd) { fromRDD = rdd; }
+	public void setFromRDD(JavaPairRDD<Object, Object> rdd) { fromRDD = rdd; }
 	
-	public void setToRDD(JavaPairRDD<String, String> rdd) { toRDD = rdd; }
+	public void setToRDD(JavaPairRDD<Object, Object> rdd) { toRDD = rdd; }
 	
-	public JavaPairRDD<String, String> parallelize(ArrayList<Tuple2<String, String>> dataset) { 
+	public Schema getFromSchema() { return fromSchema; }
+	
+	public Schema getToSchema() { return toSchema; }
+	
+	public void setFromSchema(Schema schema) { fromSchema = schema; }
+	
+	public void setToSchema(Schema schema) { toSchema = schema; }
+	
+	/*
+	 * The jobs started by the current thread belong to the group, so they can be tracked and cancelled from other threads.
+	 */
+	public void setJobGroup(String group) {
+		jsc.setJobGroup(group, group, true);
+	}
+	
+	public void cancelJobGroup(String group) {
+		jsc.cancelJobGroup(group);
+	}
+	
+	/**
+	 * Completed and total tasks of the jobs of the group, as reported by Spark: a task computes a partition.
+	 */
+	public int[] progress(String group) {
+		JavaSparkStatusTracker tracker = jsc.statusTracker();
+		int[] progress = new int[2];
+		
+		for (int job : tracker.getJobIdsForGroup(group)) {
+			SparkJobInfo jobInfo = tracker.getJobInfo(job);
+			
+			if (jobInfo == null) continue;
+			
+			for (int stage : jobInfo.stageIds()) {
+				SparkStageInfo stageInfo = tracker.getStageInfo(stage);
+				
+				if (stageInfo == null) continue;
+				
+				progress[0] += stageInfo.numCompletedTasks();
+				progress[1] += stageInfo.numTasks();
+			}
+		}
+		
+		return progress;
+	}
+	
+	public void stop() {
+		jsc.stop();
+	}
+	
+	public <K, V> JavaPairRDD<K, V> parallelize(List<Tuple2<K, V>> dataset) { 
 		return jsc.parallelizePairs(dataset);
 	}
+	
+	/**
+	 * Random dataset generated in parallel, each partition on the executor that computes it.
+	 */
+	public JavaPairRDD<Object, Object> generate(Schema schema, long size, long seed, int nPartitions) {
+		List<Integer> partitions = new ArrayList<>();
+		
+		for (int p = 0; p < nPartitions; p++)
+			partitions.add(p);
+		
+		return jsc.parallelize(partitions, nPartitions)
+				.flatMapToPair(p -> new RandomRecords(schema, size, seed, p, nPartitions));
+	}
+	
+	public JavaRDD<String> textFile(String path, int minPartitions) {
+		return jsc.textFile(path, minPartitions);
+	}
+
+	/*
+	 * Map transformations: they are narrow transformations of fromRDD into toRDD,
+	 * so a chain of them is executed in a single pass over each partition.
+	 */
+
+	public void map(List<String> operations, String condition, String value) {
+		NarrowChain chain = new NarrowChain(operations, condition, value, fromSchema);
+
+		toRDD = fromRDD.mapPartitionsToPair(records -> chain.apply(records));
+		toSchema = chain.getSchema();
+	}
+
+	/*
+	 * Reduce transformations by key: they involve a shuffle of fromRDD.
+	 * The numeric values are reduced as primitives, without parsing.
+	 */
+
+	public void countByKey() {
+		toRDD = fromRDD.mapValues(v -> (Object) 1L)
+				.reduceByKey((c1, c2) -> (Long) c1 + (Long) c2);
+		toSchema = new Schema(fromSchema.getKeyType(), FieldType.LONG);
+	}
+
+	public void minByKey() {
+		toRDD = fromRDD.reduceByKey((v1, v2) -> ((Number) v2).doubleValue() < ((Number) v1).doubleValue() ? v2 : v1);
+		toSchema = fromSchema;
+	}
+
+	public void maxByKey() {
+		toRDD = fromRDD.reduceByKey((v1, v2) -> ((Number) v2).doubleValue() > ((Number) v1).doubleValue() ? v2 : v1);
+		toSchema = fromSchema;
+	}
+
+	public void sumByKey() {
+		if (fromSchema.getValueType().isIntegral()) {
+			toRDD = fromRDD.mapValues(v -> (Object) ((Number) v).longValue())
+					.reduceByKey((s1, s2) -> (Long) s1 + (Long) s2);
+			toSchema = new Schema(fromSchema.getKeyType(), FieldType.LONG);
+		}
+		else {
+			toRDD = fromRDD.mapValues(v -> (Object) ((Number) v).doubleValue())
+					.reduceByKey((s1, s2) -> (Double) s1 + (Double) s2);
+			toSchema = new Schema(fromSchema.getKeyType(), FieldType.DOUBLE);
+		}
+	}
+
+	public void groupByKey() {
+		toRDD = fromRDD.aggregateByKey(new TreeSet<String>(),
+				(values, v) -> { values.addAll(Functions.stringToOrderedSet(Functions.format(v))); return values; },
+				(values1, values2) -> { values1.addAll(values2); return values1; })
+				.mapValues(values -> (Object) Functions.join(values));
+		toSchema = new Schema(fromSchema.getKeyType(), FieldType.STRING);
+	}
+
+	/*
+	 * Aggregations (not by key): toRDD contains a single record with the result.
+	 * The minimum and the maximum of an empty RDD are an empty toRDD.
+	 */
+
+	public void count() {
+		long count = fromRDD.count();
+
+		toRDD = jsc.parallelizePairs(Collections.singletonList(new Tuple2<Object, Object>(null, count)));
+		toSchema = new Schema(FieldType.NONE, FieldType.LONG);
+	}
+
+	public void min(boolean onKey) {
+		toRDD = fromRDD.isEmpty() ? jsc.parallelizePairs(Collections.emptyList()) : 
+			jsc.parallelizePairs(Collections.singletonList(fromRDD.reduce((t1, t2) ->
+				((Number) (onKey ? t2._1 : t2._2)).doubleValue() < ((Number) (onKey ? t1._1 : t1._2)).doubleValue() ? t2 : t1)));
+		toSchema = fromSchema;
+	}
+
+	public void max(boolean onKey) {
+		toRDD = fromRDD.isEmpty() ? jsc.parallelizePairs(Collections.emptyList()) : 
+			jsc.parallelizePairs(Collections.singletonList(fromRDD.reduce((t1, t2) ->
+				((Number) (onKey ? t2._1 : t2._2)).doubleValue() > ((Number) (onKey ? t1._1 : t1._2)).doubleValue() ? t2 : t1)));
+		toSchema = fromSchema;
+	}
+
+	public void sum(boolean onKey) {
+		Object sum;
+
+		// the partial sums are accumulated into primitive arrays, with no boxing per record
+		if (fromSchema.getType(onKey).isIntegral())
+			sum = fromRDD.aggregate(new long[1],
+					(partial, t) -> { partial[0] += ((Number) (onKey ? t._1 : t._2)).longValue(); return partial; },
+					(partial1, partial2) -> { partial1[0] += partial2[0]; return partial1; })[0];
+		else
+			sum = fromRDD.aggregate(new double[1],
+					(partial, t) -> { partial[0] += ((Number) (onKey ? t._1 : t._2)).doubleValue(); return partial; },
+					(partial1, partial2) -> { partial1[0] += partial2[0]; return partial1; })[0];
+
+		toRDD = jsc.parallelizePairs(Collections.singletonList(new Tuple2<Object, Object>(null, sum)));
+		toSchema = new Schema(FieldType.NONE, fromSchema.getType(onKey).isIntegral() ? FieldType.LONG : FieldType.DOUBLE);
+	}
+
+	/**
+	 * Checks that all the keys (or values) of fromRDD are numbers, from its schema.
+	 */
+	public boolean isNumeric(boolean onKey) {
+		return fromSchema.getType(onKey).isNumeric();
+	}
 }
@@ -0,0 +1,124 @@
+package marvel.mapreduce;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import scala.Tuple2;
+
+/**
+ * Consecutive map operations (Swap, FilterOnKey, FilterOnValue, Split, FlatMapToPair)
+ * fused into a single pass over each partition: every record goes through the whole chain
+ * before the next one is read, so the intermediate results are never materialized.
+ *
+ * @author Francesco Palini
+ */
+
+public class NarrowChain implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String[] operations;
+	private Object[] operands; // parsed value of each filter operation
+	private String condition;
+	private Schema schema; // schema of the output records
+
+	/**
+	 * @param operations names of the map operations, in order of execution.
+	 * @param condition condition of the filter operations.
+	 * @param value value of the filter operations.
+	 * @param schema schema of the input records.
+	 */
+	public NarrowChain(List<String> operations, String condition, String value, Schema schema) {
+		this.operations = operations.toArray(new String[0]);
+		this.operands = new Object[this.operations.length];
+		this.condition = condition;
+
+		for (int step = 0; step < this.operations.length; step++) {
+			switch (this.operations[step]) {
+			case "FilterOnKey": operands[step] = Functions.operand(condition, value, schema.getKeyType()); break;
+			case "FilterOnValue": operands[step] = Functions.operand(condition, value, schema.getValueType()); break;
+			}
+
+			schema = schema(this.operations[step], schema);
+		}
+
+		this.schema = schema;
+	}
+
+	/**
+	 * Schema of the records produced by the map operation.
+	 */
+	public static Schema schema(String operation, Schema schema) {
+		switch (operation) {
+		case "Swap": return new Schema(schema.getValueType(), schema.getKeyType());
+		case "FilterOnKey":
+		case "FilterOnValue": return schema;
+		case "Split":
+		case "FlatMapToPair": return new Schema(FieldType.STRING, FieldType.INTEGER);
+		default: throw new IllegalArgumentException("Not a map operation: " + operation);
+		}
+	}
+
+	public Schema getSchema() { return schema; }
+
+	/**
+	 * Output records of a partition, produced lazily while the input records are read.
+	 */
+	public Iterator<Tuple2<Object, Object>> apply(Iterator<Tuple2<Object, Object>> records) {
+		return new Iterator<Tuple2<Object, Object>>() {
+			private List<Tuple2<Object, Object>> buffer = new ArrayList<>(); // output of the last input record
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				while (next == buffer.size() && records.hasNext()) {
+					buffer.clear();
+					next = 0;
+					apply(records.next(), 0, buffer);
+				}
+
+				return next < buffer.size();
+			}
+
+			@Override
+			public Tuple2<Object, Object> next() {
+				if (!hasNext()) throw new NoSuchElementException();
+
+				return buffer.get(next++);
+			}
+		};
+	}
+
+	/**
+	 * Applies the operations from the given step on, depth-first, adding the final records to out.
+	 */
+	private void apply(Tuple2<Object, Object> t, int step, List<Tuple2<Object, Object>> out) {
+		if (step == operations.length) {
+			out.add(t);
+			return;
+		}
+
+		switch (operations[step]) {
+		case "Swap":
+			apply(new Tuple2<>(t._2, t._1), step+1, out);
+			break;
+		case "FilterOnKey":
+			if (Functions.filterEval(condition, t._1, operands[step])) apply(t, step+1, out);
+			break;
+		case "FilterOnValue":
+			if (Functions.filterEval(condition, t._2, operands[step])) apply(t, step+1, out);
+			break;
+		case "Split":
+			for (String word : Functions.split(Functions.format(t._2)))
+				apply(new Tuple2<>(word, 1), step+1, out);
+			break;
+		case "FlatMapToPair":
+			for (String pair : Functions.pairs(Functions.format(t._2)))
+				apply(new Tuple2<>(pair, 1), step+1, out);
+			break;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package marvel.mapreduce;
+
+/**
+ * A number read from a text that is not its canonical format, e.g. "1.50", "1e5" or "3" in a Double column.
+ * It is computed as the number, but it is displayed and compared as the text it was read from,
+ * so the records keep the values of the input.
+ *
+ * @author Francesco Palini
+ */
+
+public final class Numeral extends Number {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Number value;
+	private final String text;
+
+	public Numeral(Number value, String text) {
+		this.value = value;
+		this.text = text;
+	}
+
+	@Override
+	public int intValue() { return value.intValue(); }
+
+	@Override
+	public long longValue() { return value.longValue(); }
+
+	@Override
+	public float floatValue() { return value.floatValue(); }
+
+	@Override
+	public double doubleValue() { return value.doubleValue(); }
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof Numeral && text.equals(((Numeral) o).text);
+	}
+
+	@Override
+	public int hashCode() {
+		return text.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
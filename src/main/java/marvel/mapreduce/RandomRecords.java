@@ -0,0 +1,69 @@
+package marvel.mapreduce;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import scala.Tuple2;
+
+/**
+ * Random records of a partition, generated lazily on the executor that computes it.
+ * Each partition has its own random stream, split from the seed of the dataset,
+ * so the dataset depends only on the seed and on the number of partitions.
+ *
+ * @author Francesco Palini
+ */
+
+public class RandomRecords implements Iterator<Tuple2<Object, Object>> {
+
+	private static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+	private Schema schema;
+	private SplittableRandom rnd;
+	private long remaining;
+
+	/**
+	 * @param size number of records of the dataset, divided evenly among the partitions.
+	 */
+	public RandomRecords(Schema schema, long size, long seed, int partition, int nPartitions) {
+		this.schema = schema;
+		this.remaining = size / nPartitions + (partition < size % nPartitions ? 1 : 0);
+
+		SplittableRandom root = new SplittableRandom(seed);
+
+		rnd = root.split();
+		for (int p = 0; p < partition; p++)
+			rnd = root.split();
+	}
+
+	@Override
+	public boolean hasNext() {
+		return remaining > 0;
+	}
+
+	@Override
+	public Tuple2<Object, Object> next() {
+		if (remaining-- <= 0) throw new NoSuchElementException();
+
+		return new Tuple2<>(random(schema.getKeyType(), rnd), random(schema.getValueType(), rnd));
+	}
+
+	public static Object random(FieldType type, SplittableRandom rnd) {
+		switch (type) {
+		case STRING: return randomAlphabetic(rnd.nextInt(3, 7), rnd);
+		case INTEGER: return rnd.nextInt(500);
+		case LONG: return (long) rnd.nextInt(500);
+		case DOUBLE: return rnd.nextInt(5000) / 10.0; // one decimal digit, with no formatting
+		default: return null;
+		}
+	}
+
+	private static String randomAlphabetic(int length, SplittableRandom rnd) {
+		char[] chars = new char[length];
+
+		for (int i = 0; i < length; i++)
+			chars[i] = LETTERS[rnd.nextInt(LETTERS.length)];
+
+		return new String(chars);
+	}
+}
@@ -0,0 +1,63 @@
+package marvel.mapreduce;
+
+import java.io.Serializable;
+
+import scala.Tuple2;
+
+/**
+ * Types of the key and of the value of the records of an RDD.
+ *
+ * @author Francesco Palini
+ */
+
+public class Schema implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final FieldType keyType, valueType;
+
+	public Schema(FieldType keyType, FieldType valueType) {
+		this.keyType = keyType;
+		this.valueType = valueType;
+	}
+
+	/**
+	 * Schema with the narrowest types that can represent all the records.
+	 */
+	public static Schema infer(Iterable<Tuple2<String, String>> records) {
+		FieldType keyType = FieldType.NONE, valueType = FieldType.NONE;
+
+		for (Tuple2<String, String> record : records) {
+			keyType = keyType.widen(FieldType.of(record._1));
+			valueType = valueType.widen(FieldType.of(record._2));
+		}
+
+		return new Schema(keyType, valueType);
+	}
+
+	/**
+	 * Schema with the narrowest types that can represent the record.
+	 */
+	public static Schema of(Tuple2<String, String> record) {
+		return new Schema(FieldType.of(record._1), FieldType.of(record._2));
+	}
+
+	public Tuple2<Object, Object> parse(Tuple2<String, String> record) {
+		return new Tuple2<>(keyType.parse(record._1), valueType.parse(record._2));
+	}
+
+	public Schema widen(Schema schema) {
+		return new Schema(keyType.widen(schema.keyType), valueType.widen(schema.valueType));
+	}
+
+	public FieldType getKeyType() { return keyType; }
+
+	public FieldType getValueType() { return valueType; }
+
+	public FieldType getType(boolean onKey) { return onKey ? keyType : valueType; }
+
+	@Override
+	public String toString() {
+		return "(" + keyType + ", " + valueType + ")";
+	}
+}
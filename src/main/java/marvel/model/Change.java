@@ -0,0 +1,72 @@
+package marvel.model;
+
+import java.util.Collections;
+import java.util.List;
+
+import scala.Tuple2;
+
+/**
+ * Effect of an input record on the output partition of an operator: some records are added,
+ * a record is updated (e.g. the partial result of an aggregation) or nothing changes.
+ * The renderers animate the change after it is applied to the output.
+ *
+ * @author Francesco Palini
+ */
+
+public final class Change {
+
+	public static final Change NONE = new Change(false, -1, Collections.emptyList(), false);
+
+	private final boolean update;
+	private final int index;                             // index of the first changed record of the output
+	private final List<Tuple2<String, String>> records;  // added records, or the new value of the updated record
+	private final boolean linked;                        // true if the input record is a parent of the changed records
+
+	private Change(boolean update, int index, List<Tuple2<String, String>> records, boolean linked) {
+		this.update = update;
+		this.index = index;
+		this.records = records;
+		this.linked = linked;
+	}
+
+	/**
+	 * The record is appended to the output.
+	 */
+	public static Change add(Partition output, boolean linked, Tuple2<String, String> record) {
+		return add(output, linked, Collections.singletonList(record));
+	}
+
+	public static Change add(Partition output, boolean linked, List<Tuple2<String, String>> records) {
+		return records.isEmpty() ? NONE : new Change(false, output.size(), records, linked);
+	}
+
+	public static Change update(int index, Tuple2<String, String> record, boolean linked) {
+		return new Change(true, index, Collections.singletonList(record), linked);
+	}
+
+	public void applyTo(Partition output) {
+		if (update)
+			output.set(index, records.get(0));
+		else
+			for (Tuple2<String, String> record : records)
+				output.add(record);
+	}
+
+	public boolean isNone() { return records.isEmpty(); }
+
+	public boolean isUpdate() { return update; }
+
+	public boolean isLinked() { return linked; }
+
+	/**
+	 * Index of the first changed record of the output.
+	 */
+	public int getIndex() { return index; }
+
+	/**
+	 * Number of changed records of the output, from {@link #getIndex()}.
+	 */
+	public int size() { return records.size(); }
+
+	public List<Tuple2<String, String>> getRecords() { return records; }
+}
@@ -0,0 +1,169 @@
+package marvel.model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Parents of the records of the stages: a record is identified by (stage_id, record_id), packed in a long
+ * by {@link #record(int, int)}, and its parents are records of the previous stage.
+ * The links are kept in flat arrays: for each record with parents, a hash table gives its last link,
+ * and each link gives the previous link of the same record.
+ *
+ * @author Francesco Palini
+ */
+
+public class Lineage {
+
+	private static final long FREE = -1; // free slot of the table, the records are not negative
+	private static final int NONE = -1;  // end of the links of a record
+
+	private long[] from = new long[16], to = new long[16]; // links, in the order they were added
+	private int[] previous = new int[16];                  // previous link of the same record
+	private int size;
+
+	private long[] keys = newKeys(32); // records with parents
+	private int[] last = new int[32];  // last link of the record
+	private int records;
+
+	public static long record(int stage, int record) {
+		return (long) stage << 32 | record;
+	}
+
+	public static int stageOf(long record) {
+		return (int) (record >>> 32);
+	}
+
+	public static int indexOf(long record) {
+		return (int) record;
+	}
+
+	public void add(long from, long to) {
+		if (size == this.from.length) {
+			this.from = Arrays.copyOf(this.from, size * 2);
+			this.to = Arrays.copyOf(this.to, size * 2);
+			previous = Arrays.copyOf(previous, size * 2);
+		}
+
+		int slot = slot(keys, to);
+
+		if (keys[slot] == FREE) {
+			keys[slot] = to;
+			last[slot] = NONE;
+			records++;
+		}
+
+		this.from[size] = from;
+		this.to[size] = to;
+		previous[size] = last[slot];
+		last[slot] = size++;
+
+		if (records * 2 > keys.length) rehash();
+	}
+
+	/**
+	 * Parents of the record, in the order they were added; empty if it has no parents.
+	 */
+	public long[] getParents(long to) {
+		int slot = slot(keys, to);
+
+		if (keys[slot] == FREE) return new long[0];
+
+		int n = 0;
+
+		for (int link = last[slot]; link != NONE; link = previous[link])
+			n++;
+
+		long[] parents = new long[n];
+
+		for (int link = last[slot]; link != NONE; link = previous[link])
+			parents[--n] = from[link];
+
+		return parents;
+	}
+
+	public boolean hasParents(long to) {
+		return keys[slot(keys, to)] == to;
+	}
+
+	/**
+	 * Links to the records of the stage, as pairs (from, to) in a flat array.
+	 */
+	public long[] getLinks(int stage) {
+		long[] links = new long[0];
+		int n = 0;
+
+		for (int link = 0; link < size; link++) {
+			if (stageOf(to[link]) != stage) continue;
+
+			if (n == links.length) links = Arrays.copyOf(links, Math.max(16, n * 2));
+
+			links[n++] = from[link];
+			links[n++] = to[link];
+		}
+
+		return Arrays.copyOf(links, n);
+	}
+
+	/**
+	 * Links from the ancestors of the record, as pairs (from, to) in a flat array.
+	 * The ancestors are visited with an explicit stack, each of them once.
+	 */
+	public long[] getPath(long root) {
+		long[] path = new long[0], stack = { root };
+		int n = 0, top = 1;
+		HashSet<Long> visited = new HashSet<>();
+
+		while (top > 0) {
+			long record = stack[--top];
+
+			if (!visited.add(record)) continue;
+
+			for (long parent : getParents(record)) {
+				if (n == path.length) path = Arrays.copyOf(path, Math.max(16, n * 2));
+				if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+
+				path[n++] = parent;
+				path[n++] = record;
+				stack[top++] = parent;
+			}
+		}
+
+		return Arrays.copyOf(path, n);
+	}
+
+	private void rehash() {
+		long[] old_keys = keys;
+		int[] old_last = last;
+
+		keys = newKeys(old_keys.length * 2);
+		last = new int[keys.length];
+
+		for (int i = 0; i < old_keys.length; i++)
+			if (old_keys[i] != FREE) {
+				int slot = slot(keys, old_keys[i]);
+
+				keys[slot] = old_keys[i];
+				last[slot] = old_last[i];
+			}
+	}
+
+	/*
+	 * Slot of the record in the table, or the free slot where it goes: linear probing, the length is a power of two.
+	 */
+	private static int slot(long[] keys, long record) {
+		int mask = keys.length - 1;
+		int slot = Long.hashCode(record * 0x9E3779B97F4A7C15L) & mask;
+
+		while (keys[slot] != FREE && keys[slot] != record)
+			slot = (slot + 1) & mask;
+
+		return slot;
+	}
+
+	private static long[] newKeys(int length) {
+		long[] keys = new long[length];
+		Arrays.fill(keys, FREE);
+
+		return keys;
+	}
+}
@@ -0,0 +1,18 @@
+package marvel.model;
+
+import scala.Tuple2;
+
+/**
+ * Operator applied record by record, as animated by the systems: see {@link Operators}.
+ *
+ * @author Francesco Palini
+ */
+
+@FunctionalInterface
+public interface Operator {
+
+	/**
+	 * Change of the output partition caused by the input record. The output is not modified.
+	 */
+	Change apply(Tuple2<String, String> record, Partition output);
+}
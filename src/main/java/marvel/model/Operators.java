@@ -0,0 +1,147 @@
+package marvel.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+import marvel.mapreduce.FieldType;
+import marvel.mapreduce.Functions;
+import scala.Tuple2;
+
+/**
+ * Operators of the systems, record by record. The aggregations keep their partial results in the output partition:
+ * not by key, the output has a single record; by key, a record for each key.
+ * An operator may keep a state, so a new one is created for each partition.
+ *
+ * @author Francesco Palini
+ */
+
+public final class Operators {
+
+	private Operators() { }
+
+	public static Operator swap() {
+		return (record, output) -> Change.add(output, true, new Tuple2<>(record._2, record._1));
+	}
+
+	/**
+	 * The filtered field is parsed with the type of its column, as the records of the RDD.
+	 */
+	public static Operator filter(String condition, String value, boolean onKey, FieldType type) {
+		Object operand = Functions.operand(condition, value, type);
+
+		return (record, output) -> Functions.filterEval(condition, type.parse(onKey ? record._1 : record._2), operand)
+				? Change.add(output, true, record) : Change.NONE;
+	}
+
+	public static Operator split() {
+		return (record, output) -> {
+			List<Tuple2<String, String>> words = new ArrayList<>();
+
+			for (String word : Functions.split(record._2))
+				words.add(new Tuple2<>(word, "1"));
+
+			return Change.add(output, true, words);
+		};
+	}
+
+	public static Operator flatMapToPair() {
+		return (record, output) -> {
+			List<Tuple2<String, String>> pairs = new ArrayList<>();
+
+			for (String pair : Functions.pairs(record._2))
+				pairs.add(new Tuple2<>(pair, "1"));
+
+			return Change.add(output, true, pairs);
+		};
+	}
+
+	public static Operator count(boolean byKey) {
+		return (record, output) -> {
+			int index = byKey ? output.indexOfKey(record._1) : 0;
+
+			if (byKey && index == -1) // new record key
+				return Change.add(output, true, new Tuple2<>(record._1, "1"));
+
+			if (output.isEmpty()) // first record of an aggregation not by key
+				return Change.add(output, byKey, new Tuple2<>(null, "1"));
+
+			Tuple2<String, String> prev = output.get(index);
+
+			return Change.update(index, new Tuple2<>(prev._1, Integer.parseInt(prev._2) + 1 + ""), byKey);
+		};
+	}
+
+	/**
+	 * Not by key, the result is the whole record with the minimum.
+	 */
+	public static Operator min(boolean byKey, boolean onKey) {
+		return extreme(byKey, onKey, -1);
+	}
+
+	/**
+	 * Not by key, the result is the whole record with the maximum.
+	 */
+	public static Operator max(boolean byKey, boolean onKey) {
+		return extreme(byKey, onKey, 1);
+	}
+
+	/*
+	 * The record replaces the partial result if the comparison of its element with the partial result has the given sign.
+	 */
+	private static Operator extreme(boolean byKey, boolean onKey, int sign) {
+		return (record, output) -> {
+			int index = byKey ? output.indexOfKey(record._1) : 0;
+
+			if (byKey && index == -1) // new record key
+				return Change.add(output, true, record);
+
+			if (output.isEmpty())
+				return Change.add(output, byKey, record);
+
+			Tuple2<String, String> prev = output.get(index);
+			double element1 = Double.parseDouble(onKey ? record._1 : record._2);
+			double element2 = Double.parseDouble(onKey ? prev._1 : prev._2);
+
+			return Change.update(index, Math.signum(element1 - element2) == sign ? record : prev, byKey);
+		};
+	}
+
+	public static Operator sum(boolean byKey, boolean onKey) {
+		return (record, output) -> {
+			int index = byKey ? output.indexOfKey(record._1) : 0;
+
+			if (byKey && index == -1) // new record key
+				return Change.add(output, true, record);
+
+			String element = onKey ? record._1 : record._2;
+
+			if (output.isEmpty())
+				return Change.add(output, byKey, new Tuple2<>(null, element));
+
+			Tuple2<String, String> prev = output.get(index);
+
+			return Change.update(index, new Tuple2<>(prev._1, Functions.add(prev._2, element)), byKey);
+		};
+	}
+
+	/**
+	 * The values of a key are merged into an ordered set, as in MapReduceAlgo.groupByKey.
+	 */
+	public static Operator groupByKey() {
+		HashMap<String, TreeSet<String>> groups = new HashMap<>();
+
+		return (record, output) -> {
+			int index = output.indexOfKey(record._1);
+			TreeSet<String> values = index == -1 ? new TreeSet<>() : groups.get(record._1);
+
+			values.addAll(Functions.stringToOrderedSet(record._2));
+			groups.put(record._1, values);
+
+			Tuple2<String, String> group = new Tuple2<>(record._1, Functions.join(values));
+
+			return index == -1 ? Change.add(output, true, group) : Change.update(index, group, true);
+		};
+	}
+}
@@ -0,0 +1,104 @@
+package marvel.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import scala.Tuple2;
+
+/**
+ * Records of an RDD partition, as (key, value) pairs: the key is null if the records have only values.
+ * It is the data displayed by an RDDPartitionFx, and it does not depend on JavaFX.
+ *
+ * @author Francesco Palini
+ */
+
+public class Partition {
+
+	private ArrayList<Tuple2<String, String>> records = new ArrayList<>();
+	private HashMap<String, Integer> keyIndex = new HashMap<>(); // key -> index of the last record with the key
+
+	public Partition() { }
+
+	public Partition(List<Tuple2<String, String>> records) {
+		for (Tuple2<String, String> record : records)
+			add(record);
+	}
+
+	/**
+	 * @return the index of the record.
+	 */
+	public int add(Tuple2<String, String> record) {
+		records.add(record);
+		if (record._1 != null) keyIndex.put(record._1, records.size()-1);
+
+		return records.size()-1;
+	}
+
+	/**
+	 * Replaces the record at the given index, e.g. with the new value of an aggregation.
+	 */
+	public void set(int index, Tuple2<String, String> record) {
+		records.set(index, record);
+		if (record._1 != null) keyIndex.put(record._1, index);
+	}
+
+	public Tuple2<String, String> get(int index) {
+		return records.get(index);
+	}
+
+	public Tuple2<String, String> remove(int index) {
+		Tuple2<String, String> record = records.remove(index);
+
+		// the indexes of the following records change
+		keyIndex.clear();
+
+		for (int i = 0; i < records.size(); i++)
+			if (records.get(i)._1 != null) keyIndex.put(records.get(i)._1, i);
+
+		return record;
+	}
+
+	public void clear() {
+		records.clear();
+		keyIndex.clear();
+	}
+
+	/**
+	 * Index of the last record with the key, -1 if there is none.
+	 */
+	public int indexOfKey(String key) {
+		Integer index = keyIndex.get(key);
+
+		return index == null ? -1 : index;
+	}
+
+	public int size() { return records.size(); }
+
+	public boolean isEmpty() { return records.isEmpty(); }
+
+	/**
+	 * The list is a view, updated as the records are added and removed.
+	 */
+	public List<Tuple2<String, String>> getRecords() {
+		return Collections.unmodifiableList(records);
+	}
+
+	/**
+	 * Records of the partition split into blocks of blocksize records, the last one possibly smaller.
+	 */
+	public List<List<Tuple2<String, String>>> getBlocks(int blocksize) {
+		List<List<Tuple2<String, String>>> blocks = new ArrayList<>();
+
+		for (int first = 0; first < records.size(); first += blocksize)
+			blocks.add(getRecords().subList(first, (int) Math.min((long) first + blocksize, records.size())));
+
+		return blocks;
+	}
+
+	@Override
+	public String toString() {
+		return records.toString();
+	}
+}
@@ -0,0 +1,107 @@
+package marvel.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * An operator applied to an input partition, one record at a time. Each step applies the change of a record
+ * to the output partition and, if there is a lineage, links the changed records to their parent.
+ * The systems animate the steps; {@link #run()} executes all of them, e.g. with no display.
+ *
+ * @author Francesco Palini
+ */
+
+public class Stage {
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors()); // computes the independent stages
+
+	private Partition input, output;
+	private Operator operator;
+	private Lineage lineage; // null if the lineage is not kept
+	private int id;          // stage of the output records in the lineage, the input records are in the previous one
+
+	public Stage(Partition input, Partition output, Operator operator) {
+		this(input, output, operator, null, 0);
+	}
+
+	public Stage(Partition input, Partition output, Operator operator, Lineage lineage, int id) {
+		this.input = input;
+		this.output = output;
+		this.operator = operator;
+		this.lineage = lineage;
+		this.id = id;
+	}
+
+	/**
+	 * Applies the operator to the input record at the given index.
+	 */
+	public Change step(int index) {
+		Change change = operator.apply(input.get(index), output);
+
+		change.applyTo(output);
+
+		if (lineage != null && change.isLinked())
+			for (int i = change.getIndex(); i < change.getIndex() + change.size(); i++)
+				lineage.add(Lineage.record(id-1, index), Lineage.record(id, i));
+
+		return change;
+	}
+
+	public Partition run() {
+		steps();
+
+		return output;
+	}
+
+	/**
+	 * Applies all the steps.
+	 *
+	 * @return the change caused by each input record.
+	 */
+	public Change[] steps() {
+		Change[] changes = new Change[input.size()];
+
+		for (int i = 0; i < changes.length; i++)
+			changes[i] = step(i);
+
+		return changes;
+	}
+
+	/**
+	 * Applies all the steps of the stages, which must have distinct outputs (and lineages), in parallel.
+	 *
+	 * @return for each stage, in the given order, the change caused by each input record.
+	 */
+	public static List<Change[]> steps(List<Stage> stages) {
+		List<Callable<Change[]>> tasks = new ArrayList<>();
+
+		for (Stage stage : stages)
+			tasks.add(stage::steps);
+
+		List<Change[]> changes = new ArrayList<>();
+
+		try {
+			for (Future<Change[]> future : POOL.invokeAll(tasks))
+				changes.add(future.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing the stages", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+
+			throw new IllegalStateException(e.getCause());
+		}
+
+		return changes;
+	}
+
+	public Partition getInput() { return input; }
+
+	public Partition getOutput() { return output; }
+
+	public int size() { return input.size(); }
+}
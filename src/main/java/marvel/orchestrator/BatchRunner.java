@@ -0,0 +1,103 @@
+package marvel.orchestrator;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import scala.Tuple2;
+
+/**
+ * Runs a whole pipeline of operations on the Spark system, without any visualization.
+ * For each stage it prints the number of records, the execution time and the first records.
+ *
+ * @author Francesco Palini
+ */
+
+public class BatchRunner {
+
+	private Orchestrator orchestrator;
+	private PrintStream out;
+	private int take;
+	private boolean inspect;
+
+	/**
+	 * @param orchestrator orchestrator with the generated input already set.
+	 * @param out stream where the stages are reported.
+	 * @param take number of records printed for each stage.
+	 * @param inspect if true, each operation is a stage; otherwise the consecutive map operations 
+	 * 		  and the following reduce operation are fused into a single stage.
+	 */
+	public BatchRunner(Orchestrator orchestrator, PrintStream out, int take, boolean inspect) {
+		this.orchestrator = orchestrator;
+		this.out = out;
+		this.take = take;
+		this.inspect = inspect;
+	}
+
+	/**
+	 * Executes the operations in order, each stage on the result of the previous one.
+	 *
+	 * @param pipeline names of the operations, as in {@link Orchestrator#MAP_OPERATIONS}
+	 * 		  and {@link Orchestrator#REDUCE_OPERATIONS}.
+	 * @param condition condition of the filter operations.
+	 * @param value value of the filter operations.
+	 */
+	public void run(List<String> pipeline, String condition, String value) {
+		for (int i = 0; i < pipeline.size()-1; i++)
+			if (Orchestrator.isAggregation(pipeline.get(i)))
+				throw new IllegalArgumentException(pipeline.get(i) + " must be the last operation of the pipeline.");
+
+		int first = 0;
+
+		for (int stage = 0; first < pipeline.size(); stage++) {
+			int last = inspect ? first : lastOfStage(pipeline, first);
+			List<String> operations = pipeline.subList(first, last+1);
+
+			long start = System.nanoTime();
+			long records = orchestrator.execute(operations, condition, value);
+			long time = (System.nanoTime() - start) / 1000000;
+
+			report(first == last ? first+1 + "" : first+1 + "-" + (last+1), String.join(" > ", operations), records, time);
+
+			if (Orchestrator.isAggregation(pipeline.get(last))) {
+				if (records > 0) out.println("    " + toString(orchestrator.getAggregate()));
+			}
+			else
+				for (Tuple2<String, String> record : orchestrator.getResult(take))
+					out.println("    " + toString(record));
+
+			orchestrator.commitStage(stage);
+			first = last+1;
+		}
+	}
+
+	/**
+	 * Index of the last operation fused with the given one: the map operations that follow it
+	 * and the first reduce operation, if any.
+	 */
+	private static int lastOfStage(List<String> pipeline, int first) {
+		int last = first;
+
+		while (Orchestrator.isMapOperation(pipeline.get(last)) && last < pipeline.size()-1)
+			last++;
+
+		return last;
+	}
+
+	/**
+	 * Prints the generated input, as the stage 0 of the pipeline.
+	 */
+	public void printInput(String name, long time) {
+		report("0", name, orchestrator.getDatasetSize(), time);
+
+		for (Tuple2<String, String> record : orchestrator.getDataset(take))
+			out.println("    " + toString(record));
+	}
+
+	private void report(String stage, String name, long records, long time) {
+		out.println(String.format("[%s] %-20s %10d records %8d ms", stage, name, records, time));
+	}
+
+	private static String toString(Tuple2<String, String> record) {
+		return "(" + (record._1 != null ? record._1 + ", " : "") + record._2 + ")";
+	}
+}
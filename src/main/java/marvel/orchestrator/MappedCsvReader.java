@@ -0,0 +1,238 @@
+package marvel.orchestrator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import marvel.mapreduce.Functions;
+import scala.Tuple2;
+
+/**
+ * Reader of the key and value columns of a local file with a single byte delimiter.
+ * The file is memory mapped and split into byte ranges at line boundaries, parsed in parallel:
+ * the delimiters are scanned directly in the mapped bytes and only the key and value fields
+ * become strings, with no string per line and no regular expression.
+ *
+ * @author Francesco Palini
+ */
+
+public class MappedCsvReader {
+
+	private static final int MAX_RANGE = 1 << 30; // bytes mapped by a single buffer
+
+	private File file;
+	private byte delimiter;
+	private int keyColumn, valueColumn;
+	private int nThreads;
+
+	/**
+	 * @param keyColumn column of the key, starting from 1; 0 if the records have no key.
+	 * @param valueColumn column of the value, starting from 1.
+	 * @param nThreads number of byte ranges parsed at once.
+	 */
+	public MappedCsvReader(File file, char delimiter, int keyColumn, int valueColumn, int nThreads) {
+		if (delimiter > 127)
+			throw new IllegalArgumentException("The delimiter must be an ASCII character.");
+
+		this.file = file;
+		this.delimiter = (byte) delimiter;
+		this.keyColumn = keyColumn;
+		this.valueColumn = valueColumn;
+		this.nThreads = nThreads;
+	}
+
+	/**
+	 * True if the file can be read with the split string, i.e. if it is a single ASCII character
+	 * matching itself as a regular expression.
+	 */
+	public static boolean supports(String split_char) {
+		return split_char.length() == 1 && split_char.charAt(0) < 128 && ".$|()[{^?*+\\".indexOf(split_char.charAt(0)) == -1;
+	}
+
+	/**
+	 * Records of the file, in order. As with {@link Functions#record(String[], int, int)} applied
+	 * to the lines split by String.split, the reading stops at the first line with an empty first field.
+	 *
+	 * @param size maximum number of records, -1 to read all of them.
+	 * @throws IllegalArgumentException if a line read has not the key or the value column.
+	 */
+	public ArrayList<Tuple2<String, String>> read(int size) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			long[] bounds = bounds(channel);
+			List<Future<Range>> ranges = new ArrayList<>();
+
+			for (int r = 0; r < bounds.length-1; r++) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[r], bounds[r+1] - bounds[r]);
+				ranges.add(executor.submit(() -> parse(buffer, size)));
+			}
+
+			ArrayList<Tuple2<String, String>> records = new ArrayList<>();
+
+			for (Future<Range> future : ranges) {
+				Range range = future.get();
+				int n = size == -1 ? range.records.size() : Math.min(range.records.size(), size - records.size());
+
+				records.addAll(range.records.subList(0, n));
+
+				if (range.stopped || records.size() == size) break;
+			}
+
+			return records;
+		}
+		catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+
+			throw new IOException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Offsets of the byte ranges: each range starts at the beginning of a line and is at most MAX_RANGE long.
+	 */
+	private long[] bounds(FileChannel channel) throws IOException {
+		long length = channel.size();
+		int nRanges = (int) Math.max(nThreads, (length + MAX_RANGE - 1) / MAX_RANGE);
+		List<Long> bounds = new ArrayList<>();
+
+		bounds.add(0L);
+
+		for (int r = 1; r < nRanges; r++) {
+			long bound = nextLine(channel, length * r / nRanges);
+
+			if (bound > bounds.get(bounds.size()-1) && bound < length)
+				bounds.add(bound);
+		}
+
+		bounds.add(length);
+
+		return bounds.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 * Offset of the first line starting after the given position.
+	 */
+	private static long nextLine(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+		while (channel.read(buffer, position) > 0) {
+			buffer.flip();
+
+			while (buffer.hasRemaining()) {
+				position++;
+				if (buffer.get() == '\n') return position;
+			}
+
+			buffer.clear();
+		}
+
+		return position;
+	}
+
+	/**
+	 * Records of a byte range, at most size of them (if not -1). The fields of a line are the ones of String.split:
+	 * the trailing empty fields are removed, and a line with a single field is a value with no key, not trimmed.
+	 */
+	private Range parse(ByteBuffer buffer, int size) {
+		Range range = new Range();
+		byte[] field = new byte[256]; // bytes of the field being converted to a string
+		int[] ends = new int[16];     // end of each field of the line
+		int limit = buffer.limit();
+		int lineStart = 0;
+
+		while (lineStart < limit && (size == -1 || range.records.size() < size)) {
+			int lineEnd = lineStart;
+
+			while (lineEnd < limit && buffer.get(lineEnd) != '\n') lineEnd++;
+
+			int next = lineEnd+1;
+
+			if (lineEnd > lineStart && buffer.get(lineEnd-1) == '\r') lineEnd--;
+
+			int nFields = 0;
+
+			for (int i = lineStart; i <= lineEnd; i++) {
+				if (i < lineEnd && buffer.get(i) != delimiter) continue;
+
+				if (nFields == ends.length) ends = Arrays.copyOf(ends, nFields * 2);
+
+				ends[nFields++] = i;
+			}
+
+			// the trailing empty fields are removed, except the first one
+			while (nFields > 1 && ends[nFields-1] == start(ends, nFields-1, lineStart)) nFields--;
+
+			// a line with an empty first field ends the reading
+			if (ends[0] == lineStart) {
+				range.stopped = true;
+				break;
+			}
+
+			if (nFields == 1)
+				range.records.add(new Tuple2<>(null, string(buffer, lineStart, ends[0], field, false)));
+			else {
+				if (keyColumn > nFields || valueColumn > nFields)
+					throw new IllegalArgumentException("A line has only " + nFields + " columns: " 
+							+ string(buffer, lineStart, lineEnd, field, false));
+
+				range.records.add(new Tuple2<>(
+						keyColumn == 0 ? null : string(buffer, start(ends, keyColumn-1, lineStart), ends[keyColumn-1], field, true),
+						string(buffer, start(ends, valueColumn-1, lineStart), ends[valueColumn-1], field, true)));
+			}
+
+			lineStart = next;
+		}
+
+		return range;
+	}
+
+	/*
+	 * Start of the field, after the end of the previous one.
+	 */
+	private static int start(int[] ends, int field, int lineStart) {
+		return field == 0 ? lineStart : ends[field-1] + 1;
+	}
+
+	/**
+	 * Field between the offsets, decoded as UTF-8.
+	 */
+	private static String string(ByteBuffer buffer, int start, int end, byte[] field, boolean trim) {
+		if (trim) {
+			while (start < end && (buffer.get(start) & 0xff) <= ' ') start++;
+			while (end > start && (buffer.get(end-1) & 0xff) <= ' ') end--;
+		}
+
+		if (end - start > field.length) field = new byte[end - start];
+
+		for (int i = start; i < end; i++)
+			field[i - start] = buffer.get(i);
+
+		return new String(field, 0, end - start, StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * Records of a byte range, and whether a line of the range ended the reading.
+	 */
+	private static class Range {
+		private List<Tuple2<String, String>> records = new ArrayList<>();
+		private boolean stopped;
+	}
+}
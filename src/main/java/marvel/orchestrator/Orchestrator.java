@@ -1,114 +1,464 @@
 package marvel.orchestrator;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 import java.util.stream.IntStream;
 
-import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
 
+import marvel.mapreduce.FieldType;
+import marvel.mapreduce.Functions;
 import marvel.mapreduce.MapReduceAlgo;
+import marvel.mapreduce.NarrowChain;
+import marvel.mapreduce.Schema;
 import scala.Tuple2;
 
 public class Orchestrator {
+	
+	public static final String[] MAP_OPERATIONS = new String[] { "Swap", "FilterOnKey", "FilterOnValue", "Split", "FlatMapToPair"};
+	public static final String[] REDUCE_OPERATIONS = new String[] { "Count", "MinOnKey", "MinOnValue", 
+			"MaxOnKey", "MaxOnValue", "SumOnKey", "SumOnValue", "GroupByKey", "ReduceByKey + Count", "ReduceByKey + Min", "ReduceByKey + Max", "ReduceByKey + Sum" };
+	
 	private MapReduceAlgo mapReduceAlgo;
+	private int nExecutors;
+	private ArrayList<JavaPairRDD<Object, Object>> stages = new ArrayList<>(); // RDD of each stage, from the generated one
+	private ArrayList<Schema> schemas = new ArrayList<>(); // schema of each stage
+	private long[] partitionSizes; // sizes of the partitions of partitionSizesOf
+	private JavaPairRDD<Object, Object> partitionSizesOf;
 	
 	public Orchestrator(int nExecutors) {
+		this.nExecutors = nExecutors;
 		mapReduceAlgo = new MapReduceAlgo(nExecutors); // setup of the Spark system
 	}
 	
 	public void createRDDfromFile(int size, File input_file, String split_char, int key_column, int value_column) {
-        ArrayList<Tuple2<String, String>> dataset = new ArrayList<>();
-        BufferedReader reader = null;
-        
-        try {
-	        reader = new BufferedReader(new FileReader(input_file));
-	
-	        String key = null;
-	        String value = null;
-	        
-	        int el_counter = 0;
-	        String line, key_value_line[];
-	        
-	        while((line = reader.readLine()) != null && (size == -1 || el_counter++ < size)) {
-	        	key_value_line = line.split(split_char);
-	        	
-	        	if (key_value_line[0].equals("")) break;
-	        	
-	        	if (key_value_line.length > 1) {
-	        		key = key_column == 0 ? null : key_value_line[key_column-1].trim();
-		        	value = key_value_line[value_column-1].trim(); 
-	        	}
-	        	else
-	        		value = key_value_line[0];
-	        
-		        dataset.add(new Tuple2<>(key, value));
-	        }
-        } 
-        catch (IOException e) { e.printStackTrace(); } 
-        finally { 
-        	try { reader.close(); } 
-        	catch (IOException e) { e.printStackTrace(); } 
-        }
+		createRDDfromFile(size, input_file, split_char, key_column, value_column, nExecutors);
+	}
+	
+	/**
+	 * Reads the file with Spark, in at least the given number of partitions. The lines are split,
+	 * and the key and value columns extracted and parsed, in parallel on the executors,
+	 * so the dataset is never loaded on the driver. As when the file was read line by line, 
+	 * the reading stops at the first line with an empty first field (e.g. an empty line).
+	 * The lines read from each partition are found first by {@link #linesRead(JavaRDD, long)}, 
+	 * so only the beginning of the file is read when the size is small.
+	 * 
+	 * @param size maximum number of lines read, -1 to read all of them.
+	 * @param key_column column of the key, starting from 1; 0 if the records have no key.
+	 * @param value_column column of the value, starting from 1.
+	 * @param partitions minimum number of partitions of the dataset.
+	 */
+	public void createRDDfromFile(int size, File input_file, String split_char, int key_column, int value_column, int partitions) {
+		JavaRDD<String[]> lines = mapReduceAlgo.textFile(input_file.getPath(), partitions)
+				.map(line -> line.split(split_char));
+		long[] read = linesRead(lines, size == -1 ? Long.MAX_VALUE : size);
+		
+		JavaPairRDD<String, String> records = lines.mapPartitionsWithIndex((p, fields) -> Functions.head(fields, read[p]), true)
+				.mapToPair(fields -> Functions.record(fields, key_column, value_column))
+				.cache();
+		
+		// the columns are parsed with the narrowest types that fit all the records
+		Schema schema = records.aggregate(new Schema(FieldType.NONE, FieldType.NONE), 
+				(partial, t) -> partial.widen(Schema.of(t)), 
+				(partial1, partial2) -> partial1.widen(partial2));
 
-        mapReduceAlgo.setFromRDD(mapReduceAlgo.parallelize(dataset));
+		mapReduceAlgo.setFromRDD(records.mapToPair(t -> schema.parse(t)));
+		mapReduceAlgo.setFromSchema(schema);
+		initStages();
+		
+		// the typed records are cached before the strings are released
+		stages.get(0).count();
+		records.unpersist();
 	}
 	
-	public void createRandomRDD(String keyType, String valueType, int size) {		
-		Random rnd = new Random();
-        ArrayList<Tuple2<String, String>> dataset = new ArrayList<>();
-        
-        if (size == -1)
-			try {
-				throw new Exception("Size cannot be -1 if the input file is not selected.");
-			} catch (Exception e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+	/*
+	 * Number of lines read from each partition: the partitions are scanned in order, as by take,
+	 * each of them up to its first line with an empty first field, and the scan ends at the first such line
+	 * or when size lines are read. Each job scans four times the partitions of the previous one.
+	 */
+	private static long[] linesRead(JavaRDD<String[]> lines, long size) {
+		int n = lines.getNumPartitions();
+		long[] read = new long[n];
+		long remaining = size;
+		boolean end = remaining == 0;
+		
+		for (int scanned = 0, batch = 1; !end && scanned < n; scanned += batch, batch *= 4) {
+			int[] ids = IntStream.range(scanned, Math.min(n, scanned + batch)).toArray();
+			long limit = remaining;
+			List<long[]>[] prefixes = lines.mapPartitions(fields -> Collections.singletonList(Functions.prefix(fields, limit)).iterator())
+					.collectPartitions(ids);
+			
+			for (int i = 0; i < ids.length && !end; i++) {
+				long[] prefix = prefixes[i].get(0);
+				
+				read[ids[i]] = Math.min(prefix[0], remaining);
+				remaining -= read[ids[i]];
+				end = remaining == 0 || prefix[1] == 1;
 			}
+		}
+		
+		return read;
+	}
+	
+	/**
+	 * Reads a file on the local disk with a {@link MappedCsvReader}, when the split string is a 
+	 * single character, and distributes the records. Otherwise, the file is read with Spark.
+	 * 
+	 * @param size maximum number of lines read, -1 to read all of them.
+	 * @param key_column column of the key, starting from 1; 0 if the records have no key.
+	 * @param value_column column of the value, starting from 1.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public void createRDDfromLocalFile(int size, File input_file, String split_char, int key_column, int value_column) throws IOException {
+		if (!MappedCsvReader.supports(split_char)) {
+			createRDDfromFile(size, input_file, split_char, key_column, value_column);
+			return;
+		}
+		
+		ArrayList<Tuple2<String, String>> dataset = new MappedCsvReader(input_file, split_char.charAt(0), key_column, value_column, 
+				Runtime.getRuntime().availableProcessors()).read(size);
+		
+        // the columns are parsed on the executors, with the narrowest types that fit all the records
+        Schema schema = Schema.infer(dataset);
 
-        String key = null;
-        String value = null;
-
-        for (int i = 0; i < size; i++) {
-            switch (keyType) {
-                case "String": key = RandomStringUtils.randomAlphabetic(3,7); break;
-                case "Integer": key = ""+rnd.nextInt(500); break;
-                case "Double": key = String.format("%.1f", rnd.nextDouble()*500); break;
-                case "-": key = null; break;
-            }
-
-            switch (valueType) {
-                case "String": value = RandomStringUtils.randomAlphabetic(3,7); break;
-                case "Integer": value = ""+rnd.nextInt(500); break;
-                case "Double": value = ""+String.format("%.1f", rnd.nextDouble()*500); break;
-            }
-
-            dataset.add(new Tuple2<>(key, value));
-        }
-
-        mapReduceAlgo.setFromRDD(mapReduceAlgo.parallelize(dataset));
+        mapReduceAlgo.setFromRDD(mapReduceAlgo.parallelize(dataset).mapToPair(t -> schema.parse(t)));
+        mapReduceAlgo.setFromSchema(schema);
+        initStages();
+	}
+	
+	public void createRandomRDD(String keyType, String valueType, int size) {
+		createRandomRDD(keyType, valueType, size, System.nanoTime(), nExecutors);
+	}
+	
+	/**
+	 * Generates the random dataset on the executors, in parallel.
+	 * 
+	 * @param seed seed of the dataset: the same seed and number of partitions give the same dataset.
+	 * @param partitions number of partitions of the dataset.
+	 */
+	public void createRandomRDD(String keyType, String valueType, int size, long seed, int partitions) {
+		if (size == -1)
+			throw new IllegalArgumentException("Size cannot be -1 if the input file is not selected.");
+		
+		Schema schema = new Schema(FieldType.fromName(keyType), FieldType.fromName(valueType));
+		
+		mapReduceAlgo.setFromRDD(mapReduceAlgo.generate(schema, size, seed, partitions));
+		mapReduceAlgo.setFromSchema(schema);
+		initStages();
+	}
+	
+	/**
+	 * Records formatted as strings, for the visualization.
+	 */
+	private static List<Tuple2<String, String>> format(List<Tuple2<Object, Object>> records) {
+		List<Tuple2<String, String>> formatted = new ArrayList<>(records.size());
+		
+		for (Tuple2<Object, Object> record : records)
+			formatted.add(format(record));
+		
+		return formatted;
+	}
+	
+	private static Tuple2<String, String> format(Tuple2<Object, Object> record) {
+		return new Tuple2<>(Functions.format(record._1), Functions.format(record._2));
 	}
 
-	public List<Tuple2<String, String>> getDataset() { 
-		return mapReduceAlgo.getFromRDD().collect(); 
+	public List<Tuple2<String, String>> getDataset(int n) { 
+		return format(mapReduceAlgo.getFromRDD().take(n)); 
+	}
+	
+	/**
+	 * Records of the working RDD from the given position, in order. 
+	 * Only the partitions that contain the page are read.
+	 * 
+	 * @param offset position of the first record of the page.
+	 * @param limit maximum number of records of the page.
+	 */
+	public List<Tuple2<String, String>> getDatasetPage(long offset, int limit) {
+		long[] sizes = getPartitionSizes();
+		List<Tuple2<String, String>> page = new ArrayList<>();
+		long start = 0; // position of the first record of the partition
+		
+		for (int p = 0; p < sizes.length && page.size() < limit; start += sizes[p++])
+			if (start + sizes[p] > offset)
+				page.addAll(getPartitionPage(p, Math.max(0, offset - start), limit - page.size()));
+		
+		return page;
+	}
+	
+	/**
+	 * Records of a partition of the working RDD from the given position, computed only on that partition.
+	 */
+	public List<Tuple2<String, String>> getPartitionPage(int partition, long offset, int limit) {
+		return partitionPage(mapReduceAlgo.getFromRDD(), partition, offset, limit);
+	}
+	
+	/**
+	 * Records of a partition of the result RDD from the given position, computed only on that partition.
+	 */
+	public List<Tuple2<String, String>> getResultPartitionPage(int partition, long offset, int limit) {
+		return partitionPage(mapReduceAlgo.getToRDD(), partition, offset, limit);
+	}
+	
+	private static List<Tuple2<String, String>> partitionPage(JavaPairRDD<Object, Object> rdd, int partition, long offset, int limit) {
+		return format(rdd.mapPartitions(records -> Functions.window(records, offset, limit))
+				.collectPartitions(new int[] { partition })[0]);
 	}
 	
-	public List<Tuple2<String, String>>[] getDatasetPartitions() { 
-        int numPartitions = mapReduceAlgo.getFromRDD().getNumPartitions();
-        
-		return mapReduceAlgo.getFromRDD()
-				.collectPartitions(IntStream.range(0, numPartitions).toArray()); 
+	/**
+	 * Number of records of each partition of the working RDD.
+	 */
+	public long[] getPartitionSizes() {
+		if (partitionSizesOf != mapReduceAlgo.getFromRDD()) {
+			partitionSizes = partitionSizes(mapReduceAlgo.getFromRDD());
+			partitionSizesOf = mapReduceAlgo.getFromRDD();
+		}
+		
+		return partitionSizes;
+	}
+	
+	/**
+	 * Number of records of each partition of the result RDD.
+	 */
+	public long[] getResultPartitionSizes() {
+		return partitionSizes(mapReduceAlgo.getToRDD());
+	}
+	
+	private static long[] partitionSizes(JavaPairRDD<Object, Object> rdd) {
+		return rdd.mapPartitions(records -> Collections.singletonList(Functions.count(records)).iterator())
+				.collect().stream().mapToLong(Long::longValue).toArray();
+	}
+	
+	public Schema getSchema() {
+		return mapReduceAlgo.getFromSchema();
+	}
+	
+	public long getDatasetSize() { 
+		return Arrays.stream(getPartitionSizes()).sum(); 
+	}
+	
+	private void initStages() {
+		for (JavaPairRDD<Object, Object> rdd : stages)
+			rdd.unpersist();
+		
+		stages.clear();
+		schemas.clear();
+		stages.add(mapReduceAlgo.getFromRDD().cache());
+		schemas.add(mapReduceAlgo.getFromSchema());
+	}
+	
+	/**
+	 * Applies the operation on the working RDD as a Spark transformation (or action, 
+	 * for the aggregations not by key), and computes the result RDD on the executors.
+	 * 
+	 * @param operation one of {@link #MAP_OPERATIONS} or {@link #REDUCE_OPERATIONS}.
+	 * @param condition condition of the filter operations.
+	 * @param value value of the filter operations.
+	 * @return number of records of the result RDD.
+	 */
+	public long execute(String operation, String condition, String value) {
+		return execute(Collections.singletonList(operation), condition, value);
+	}
+	
+	/**
+	 * Applies a chain of map operations, optionally followed by a reduce operation, as a single stage.
+	 * The map operations are fused into one pass over each partition and their output 
+	 * feeds the reduce directly, so only the result RDD is computed and cached.
+	 * 
+	 * @param operations map operations, in order of execution, and at most one reduce operation at the end.
+	 * @return number of records of the result RDD.
+	 * @throws IllegalArgumentException if the operations cannot be applied to the schema of the working RDD.
+	 */
+	public long execute(List<String> operations, String condition, String value) {
+		int narrow = 0;
+		
+		while (narrow < operations.size() && isMapOperation(operations.get(narrow)))
+			narrow++;
+		
+		if (narrow < operations.size()-1)
+			throw new IllegalArgumentException(operations.get(narrow) + " must be the last operation of the stage.");
+		
+		Schema schema = mapReduceAlgo.getFromSchema();
+		
+		for (String operation : operations) {
+			checkNumeric(operation, condition, schema);
+			
+			if (isMapOperation(operation))
+				schema = NarrowChain.schema(operation, schema);
+		}
+		
+		if (narrow > 0)
+			mapReduceAlgo.map(operations.subList(0, narrow), condition, value);
+		
+		if (narrow < operations.size()) {
+			JavaPairRDD<Object, Object> fromRDD = mapReduceAlgo.getFromRDD();
+			Schema fromSchema = mapReduceAlgo.getFromSchema();
+			
+			// the output of the map operations is consumed by the reduce, without being cached
+			if (narrow > 0) {
+				mapReduceAlgo.setFromRDD(mapReduceAlgo.getToRDD());
+				mapReduceAlgo.setFromSchema(mapReduceAlgo.getToSchema());
+			}
+			
+			// the working RDD is restored even if the reduce fails, e.g. when its jobs are cancelled
+			try {
+				reduce(operations.get(narrow));
+			} finally {
+				mapReduceAlgo.setFromRDD(fromRDD);
+				mapReduceAlgo.setFromSchema(fromSchema);
+			}
+		}
+		
+		mapReduceAlgo.setToRDD(mapReduceAlgo.getToRDD().cache());
+		
+		return mapReduceAlgo.getToRDD().count();
+	}
+	
+	private void reduce(String operation) {
+		switch (operation) {
+		case "Count": mapReduceAlgo.count(); break;
+		case "MinOnKey": mapReduceAlgo.min(true); break;
+		case "MinOnValue": mapReduceAlgo.min(false); break;
+		case "MaxOnKey": mapReduceAlgo.max(true); break;
+		case "MaxOnValue": mapReduceAlgo.max(false); break;
+		case "SumOnKey": mapReduceAlgo.sum(true); break;
+		case "SumOnValue": mapReduceAlgo.sum(false); break;
+		case "GroupByKey": mapReduceAlgo.groupByKey(); break;
+		case "ReduceByKey + Count": mapReduceAlgo.countByKey(); break;
+		case "ReduceByKey + Min": mapReduceAlgo.minByKey(); break;
+		case "ReduceByKey + Max": mapReduceAlgo.maxByKey(); break;
+		case "ReduceByKey + Sum": mapReduceAlgo.sumByKey(); break;
+		default: throw new IllegalArgumentException("Unknown operation: " + operation);
+		}
+	}
+	
+	/**
+	 * Checks that the operation is applied to numbers, when it requires them.
+	 */
+	private static void checkNumeric(String operation, String condition, Schema schema) {
+		boolean numeric = true;
+		
+		switch (operation) {
+		case "FilterOnKey":
+		case "FilterOnValue":
+			if (condition.equals(">") || condition.equals("<"))
+				numeric = schema.getType(operation.equals("FilterOnKey")).isNumeric();
+			break;
+		case "MinOnKey":
+		case "MaxOnKey":
+		case "SumOnKey":
+		case "ReduceByKey + Min":
+		case "ReduceByKey + Max":
+		case "ReduceByKey + Sum":
+			numeric = schema.getType(!operation.startsWith("ReduceByKey")).isNumeric();
+			break;
+		case "MinOnValue":
+		case "MaxOnValue":
+		case "SumOnValue":
+			numeric = schema.getValueType().isNumeric();
+			break;
+		}
+		
+		if (!numeric)
+			throw new IllegalArgumentException(operation + ": values must be numbers!");
+	}
+	
+	/**
+	 * First records of the result RDD.
+	 */
+	public List<Tuple2<String, String>> getResult(int n) {
+		return format(mapReduceAlgo.getToRDD().take(n));
+	}
+	
+	public static boolean isMapOperation(String operation) {
+		return Arrays.asList(MAP_OPERATIONS).contains(operation);
+	}
+	
+	/**
+	 * True for Count, Min, Max and Sum, which end the execution with a single value.
+	 */
+	public static boolean isAggregation(String operation) {
+		return Arrays.asList(REDUCE_OPERATIONS).contains(operation) && !operation.contains("ByKey");
+	}
+	
+	/**
+	 * Result of the last aggregation not by key (Count, Min, Max, Sum), 
+	 * null if there is none, i.e. the minimum or the maximum of an empty RDD.
+	 */
+	public Tuple2<String, String> getAggregate() {
+		List<Tuple2<Object, Object>> aggregate = mapReduceAlgo.getToRDD().take(1);
+		
+		return aggregate.isEmpty() ? null : format(aggregate.get(0));
+	}
+	
+	public boolean isNumeric(boolean onKey) {
+		return mapReduceAlgo.isNumeric(onKey);
+	}
+	
+	/**
+	 * The result RDD becomes the working RDD of the stage following the given one.
+	 * The stages after the given one are discarded.
+	 */
+	public void commitStage(int stage) {
+		while (stages.size() > stage + 1) {
+			stages.remove(stages.size()-1).unpersist();
+			schemas.remove(schemas.size()-1);
+		}
+		
+		stages.add(mapReduceAlgo.getToRDD());
+		schemas.add(mapReduceAlgo.getToSchema());
+		replaceFromRDD();
+	}
+	
+	/**
+	 * The RDD of the given stage becomes the working RDD.
+	 */
+	public void selectStage(int stage) {
+		if (mapReduceAlgo.getToRDD() != null && !stages.contains(mapReduceAlgo.getToRDD()))
+			mapReduceAlgo.getToRDD().unpersist();
+		
+		mapReduceAlgo.setFromRDD(stages.get(stage));
+		mapReduceAlgo.setFromSchema(schemas.get(stage));
+		mapReduceAlgo.setToRDD(null);
 	}
 	
 	public void replaceFromRDD() {
 		mapReduceAlgo.setFromRDD(mapReduceAlgo.getToRDD());
+		mapReduceAlgo.setFromSchema(mapReduceAlgo.getToSchema());
 		mapReduceAlgo.setToRDD(null);
 	}
 	
+	/**
+	 * The Spark jobs started by the current thread, e.g. by {@link #execute(String, String, String)}, belong to the group:
+	 * their progress is given by {@link #getProgress(String)} and they are stopped by {@link #cancel(String)}.
+	 */
+	public void setJobGroup(String group) {
+		mapReduceAlgo.setJobGroup(group);
+	}
+	
+	/**
+	 * @return the number of completed partitions and the total number of partitions of the jobs of the group.
+	 */
+	public int[] getProgress(String group) {
+		return mapReduceAlgo.progress(group);
+	}
+	
+	public void cancel(String group) {
+		mapReduceAlgo.cancelJobGroup(group);
+	}
+	
+	/**
+	 * Stops the Spark system.
+	 */
+	public void stop() {
+		mapReduceAlgo.stop();
+	}
+	
 	public int getNumExecutors() {
 		return mapReduceAlgo.getFromRDD().getNumPartitions();
 	}
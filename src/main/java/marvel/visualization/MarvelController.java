@@ -3,14 +3,17 @@ package marvel.visualization;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
-import javafx.animation.ParallelTransition;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
 import javafx.scene.Group;
 import javafx.scene.canvas.Canvas;
@@ -21,11 +24,14 @@ import javafx.scene.paint.Color;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 import marvel.orchestrator.Orchestrator;
+import marvel.visualization.sparkfx.CanvasSystemFx;
 import marvel.visualization.sparkfx.DistributedSystemFx;
 import marvel.visualization.sparkfx.LocalSystemFx;
 import marvel.visualization.sparkfx.NodeFx;
 import marvel.visualization.sparkfx.RDDPartitionFx;
 import marvel.visualization.sparkfx.RecordFx;
+import marvel.visualization.sparkfx.StageSnapshot;
+import marvel.visualization.sparkfx.StepTransition;
 import marvel.visualization.sparkfx.SystemFx;
 import javafx.stage.Stage;
 import scala.Tuple2;
@@ -52,13 +58,22 @@ public class MarvelController implements Initializable {
 	private Label zoom_label, speed_label;
 	
 	@FXML
-	private Button done_button, run_button;
+	private Button done_button, run_button, cancel_button, generate_button;
+	
+	@FXML
+	private ProgressBar progress_bar; // progress of the running operation
+	
+	@FXML
+	private Label progress_label;
+	
+	@FXML
+	private CheckBox instant_check; // the operations are computed with no animation
 
 	@FXML
 	private ScrollPane scrollpane;
 
 	@FXML
-	private BreadCrumbBar<SystemFx> stages;
+	private BreadCrumbBar<StageSnapshot> stages;
 
 	@FXML
 	private TextField split, keycol, valuecol;
@@ -79,11 +94,17 @@ public class MarvelController implements Initializable {
 	private double zoom_value = 1;
 	private double speed_value = 1;
 
-	private TreeItem<SystemFx> selectedStage;
+	private TreeItem<StageSnapshot> selectedStage;
+
+	private RunTask runTask; // operation computed in background, null if none
 
-	private String map_operations[] = new String[] { "Swap", "FilterOnKey", "FilterOnValue", "Split", "FlatMapToPair"};
-	private String reduce_operations[] = new String[] { "Count", "MinOnKey", "MinOnValue", 
-			"MaxOnKey", "MaxOnValue", "SumOnKey", "SumOnValue", "GroupByKey", "ReduceByKey + Count", "ReduceByKey + Min", "ReduceByKey + Max", "ReduceByKey + Sum" };
+	private boolean sampled; // only a sample of the generated dataset is displayed
+
+	private String map_operations[] = Orchestrator.MAP_OPERATIONS;
+	private String reduce_operations[] = Orchestrator.REDUCE_OPERATIONS;
+	
+	private static final int MAX_DISPLAYED = 500; // maximum number of records displayed (and animated) by the system
+	private static final int MAX_DRAWN = 200000; // maximum number of records drawn by the canvas system
 
 	@FXML
 	private TabPane tabPane;
@@ -94,27 +115,44 @@ public class MarvelController implements Initializable {
 	 */
 	@FXML
 	private void generate() {
+		if (!checkDatasize()) return;
+		
+		try {
+			createDataset();
+		} catch (IOException | IllegalArgumentException e) {
+			SystemFx.warning("The dataset cannot be created: " + e.getMessage());
+			return;
+		}
+		
 		reset();
 		
 		tabPane.getSelectionModel().select(1);
-
-		List<Tuple2<String,String>> dataset = createDataset();
-
-		currentSystem.createInput(dataset);
+		
+		long size = orchestrator.getDatasetSize();
+		
+		// the large datasets are drawn on a canvas, without animations
+		if (!local_enabled && size > MAX_DISPLAYED)
+			setCurrentSystem(new CanvasSystemFx(Integer.parseInt(nodes.getText()), Integer.parseInt(blocksize.getText()), rowsize));
+		
+		int budget = currentSystem instanceof CanvasSystemFx ? MAX_DRAWN : MAX_DISPLAYED;
+		
+		currentSystem.createInput(fetchPartitions(orchestrator.getPartitionSizes(), budget, false));
+		
+		// only some records are displayed, the others are still computed by Spark
+		sampled = size > budget;
+		
+		if (sampled)
+			SystemFx.information("The dataset contains " + size + " records in " + orchestrator.getPartitionSizes().length 
+					+ " partitions " + Arrays.toString(orchestrator.getPartitionSizes()) 
+					+ ".\nOnly the first records of each partition are displayed and animated: the animations show"
+					+ " the results of this sample, the aggregates are computed by Spark on all the records.");
 
 		currentSystem.setSystemName("Generate");
 		if (currentSystem instanceof LocalSystemFx) ((LocalSystemFx) currentSystem).setTitle("Generate");
-		stages.setSelectedCrumb(new TreeItem<>(currentSystem));
+		stages.setSelectedCrumb(new TreeItem<>(currentSystem.snapshot()));
 		selectedStage = stages.getSelectedCrumb();
-		
-		if (!local_enabled)
-			for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes())
-				if (node.getFromRDD().size() == 0)
-	        		node.setColor(NodeFx.RED);
-	        	else
-	        		node.setColor(NodeFx.GREEN);
 
-		setCurrentSystem(currentSystem.copy());
+		setCurrentSystem(selectedStage.getValue().view());
 		
 		initTransition();
 		
@@ -122,30 +160,36 @@ public class MarvelController implements Initializable {
 	}
 
 	private void initTransition() {
-		ParallelTransition initTransition = new ParallelTransition();
+		List<RecordFx> records = new ArrayList<>();
 		
-		if (!local_enabled) {
+		if (currentSystem instanceof DistributedSystemFx) {
 			for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes())
-				for (RecordFx record : node.getFromRDD().getRecords())
-					initTransition.getChildren().add(record.getFadeIn());	
+				records.addAll(node.getFromRDD().getRecords());
 			}
-		else {
+		else if (currentSystem instanceof LocalSystemFx) {
 			for(RDDPartitionFx rdd : ((LocalSystemFx) currentSystem).getStructs())
-				for (RecordFx record : rdd.getRecords())
-					initTransition.getChildren().add(record.getFadeIn());	
+				records.addAll(rdd.getRecords());
 		}
+		
+		// a single step fades in all the records
+		StepTransition initTransition = new StepTransition(1, 
+				Collections.singletonList(StepTransition.fadeIn(records.toArray(new RecordFx[0]))).iterator());
 			
 		initTransition.play();
 	}
 
 	/**
-	 * Generates a random dataset.
+	 * Generates a random dataset, or reads it from the input file.
 	 * 
-	 * @return list of {@literal <key, value>} pairs, representing the dataset.
+	 * @throws IOException if the input file cannot be read.
 	 */
-	private List<Tuple2<String,String>> createDataset() {
+	private void createDataset() throws IOException {
 
-		if (input_file != null)
+		if (input_file != null && local_enabled)
+			orchestrator.createRDDfromLocalFile(Integer.parseInt(datasize.getText()), input_file, 
+					split.getText().trim(), Integer.parseInt(keycol.getText()), 
+					Integer.parseInt(valuecol.getText()));
+		else if (input_file != null)
 			orchestrator.createRDDfromFile(Integer.parseInt(datasize.getText()), input_file, 
 					split.getText().trim(), Integer.parseInt(keycol.getText()), 
 					Integer.parseInt(valuecol.getText()));
@@ -153,7 +197,26 @@ public class MarvelController implements Initializable {
 			orchestrator.createRandomRDD(keytype.getValue(), valuetype.getValue(), 
 					Integer.parseInt(datasize.getText()));
 
-		return orchestrator.getDataset();
+	}
+	
+	/**
+	 * First records of each partition of the working (or result) RDD, fetched one partition at a time. 
+	 * The displayed records are divided among the partitions in proportion to their real sizes.
+	 * 
+	 * @param budget maximum number of records displayed.
+	 * @return for each partition, the list of {@literal <key, value>} pairs displayed.
+	 */
+	private List<List<Tuple2<String,String>>> fetchPartitions(long[] sizes, int budget, boolean result) {
+		long size = Arrays.stream(sizes).sum();
+		List<List<Tuple2<String,String>>> partitions = new ArrayList<>();
+		
+		for (int p = 0; p < sizes.length; p++) {
+			int limit = size <= budget ? (int) sizes[p] : (int) Math.ceil((double) sizes[p] * budget / size);
+			
+			partitions.add(result ? orchestrator.getResultPartitionPage(p, 0, limit) : orchestrator.getPartitionPage(p, 0, limit));
+		}
+
+		return partitions;
 	}
 
 	/**
@@ -173,7 +236,7 @@ public class MarvelController implements Initializable {
 		run_button.setDisable(true);
 
 		// execution with more than one RDD not permitted.
-		if (!local_enabled)
+		if (currentSystem instanceof DistributedSystemFx)
 			for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes())
 				if (node.getToRDD().size() > 0)
 					node.getToRDD().clear();
@@ -186,6 +249,73 @@ public class MarvelController implements Initializable {
 			}
 		
 		if (currentSystem.getDoneButton() == null) currentSystem.setDoneButton(done_button);
+		
+		String operation = map_function.equals("-") ? reduce_function : map_function;
+		
+		switch (operation) {
+		case "FilterOnKey":
+		case "FilterOnValue":
+			if (!openFilterOptions()) return;
+			if ((condition.equals(">") || condition.equals("<")) && !checkNumeric(operation.equals("FilterOnKey"))) return;
+			break;
+		case "MinOnKey":
+		case "MaxOnKey":
+		case "SumOnKey":
+			if (!checkNumeric(true)) return;
+			break;
+		case "MinOnValue":
+		case "MaxOnValue":
+		case "SumOnValue":
+			if (!checkNumeric(false)) return;
+			break;
+		}
+		
+		// the operation is computed by Spark on a background task, the system only animates its result
+		boolean canvas_system = currentSystem instanceof CanvasSystemFx;
+		RunTask task = new RunTask(orchestrator, operation, condition, value,
+				canvas_system ? () -> fetchPartitions(orchestrator.getResultPartitionSizes(), MAX_DRAWN, true) : null);
+		
+		task.setOnSucceeded(event -> {
+			endTask();
+			animate(operation, map_function, reduce_function, task);
+		});
+		
+		task.setOnFailed(event -> {
+			endTask();
+			run_button.setDisable(false);
+			DistributedSystemFx.warning(task.getException().getMessage());
+		});
+		
+		// the stage is selected again, so the result of the cancelled operation is discarded
+		startTask(task, () -> {
+			orchestrator.selectStage(stageIndex(selectedStage));
+			run_button.setDisable(false);
+		});
+	}
+	
+	/**
+	 * Shows the result of the operation computed by the task: the canvas system draws it,
+	 * the other systems animate the operation on the displayed records.
+	 */
+	private void animate(String operation, String map_function, String reduce_function, RunTask task) {
+		if (Orchestrator.isAggregation(operation))
+			currentSystem.setAggregate(task.getAggregate());
+		
+		// the canvas system shows the result computed by Spark, with no animation
+		if (currentSystem instanceof CanvasSystemFx) {
+			((CanvasSystemFx) currentSystem).setResult(task.getValue());
+			currentSystem.setSystemName(operation.replace("ReduceByKey", "RBK"));
+			
+			if (Orchestrator.isAggregation(operation))
+				SystemFx.information("The result of " + operation + " is: " + currentSystem.aggregateToString());
+			
+			done_button.setDisable(false);
+			return;
+		}
+		
+		currentSystem.showAllRecords();
+		currentSystem.setInstant(instant_check.isSelected());
+		currentSystem.setSampled(sampled);
 
 		switch (map_function) {
 		case "Swap":
@@ -195,37 +325,16 @@ public class MarvelController implements Initializable {
 			currentSystem.setSystemName("Swap");
 			break;
 		case "FilterOnKey":
-			if (openFilterOptions()) {
-				if (condition.equals(">") || condition.equals("<"))
-					if(!local_enabled)
-						for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes()) {
-							try {
-								for (RecordFx record : node.getFromRDD().getRecords()) 
-									Double.parseDouble(record.getKey().toString());
-							} catch (NumberFormatException n) { DistributedSystemFx.warning("Values must be numbers!"); return; }
-						}
-				
-				currentSystem.filter(condition, value, true);
-				currentSystem.setRate(speed_value);
-				currentSystem.getCurrentTransition().play();
-				currentSystem.setSystemName("FilterOnKey");
-			}
+			currentSystem.filter(condition, value, true, orchestrator.getSchema().getKeyType());
+			currentSystem.setRate(speed_value);
+			currentSystem.getCurrentTransition().play();
+			currentSystem.setSystemName("FilterOnKey");
 			break;
 		case "FilterOnValue":
-			if (openFilterOptions()) {
-				if (condition.equals(">") || condition.equals("<"))
-					if(!local_enabled)
-						for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes()) {
-							try {
-								for (RecordFx record : node.getFromRDD().getRecords()) 
-									Double.parseDouble(record.getValue().toString());
-							} catch (NumberFormatException n) { DistributedSystemFx.warning("Values must be numbers!"); return; }
-						}
-				currentSystem.filter(condition, value, false);
-				currentSystem.setRate(speed_value);
-				currentSystem.getCurrentTransition().play();
-				currentSystem.setSystemName("FilterOnValue");
-			}
+			currentSystem.filter(condition, value, false, orchestrator.getSchema().getValueType());
+			currentSystem.setRate(speed_value);
+			currentSystem.getCurrentTransition().play();
+			currentSystem.setSystemName("FilterOnValue");
 			break;
 		case "Split":
 			currentSystem.split();
@@ -252,26 +361,12 @@ public class MarvelController implements Initializable {
 			break;
 		
 		case "MinOnKey":
-			if(!local_enabled)
-				for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes()) {
-					try {
-						for (RecordFx record : node.getFromRDD().getRecords()) 
-							Double.parseDouble(record.getKey().toString());
-					} catch (NumberFormatException n) { DistributedSystemFx.warning("Values must be numbers!"); return; }
-				}
 			currentSystem.min(false, true);
 			currentSystem.setRate(speed_value);
 			currentSystem.getCurrentTransition().play();
 			currentSystem.setSystemName("MinOnKey");
 			break;
 		case "MinOnValue":
-			if(!local_enabled)
-				for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes()) {
-					try {
-						for (RecordFx record : node.getFromRDD().getRecords()) 
-							Double.parseDouble(record.getValue().toString());
-					} catch (NumberFormatException n) { DistributedSystemFx.warning("Values must be numbers!"); return; }
-				}
 			currentSystem.min(false, false);
 			currentSystem.setRate(speed_value);
 			currentSystem.getCurrentTransition().play();
@@ -279,26 +374,12 @@ public class MarvelController implements Initializable {
 			break;
 		
 		case "MaxOnKey":
-			if(!local_enabled)
-				for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes()) {
-					try {
-						for (RecordFx record : node.getFromRDD().getRecords()) 
-							Double.parseDouble(record.getKey().toString());
-					} catch (NumberFormatException n) { DistributedSystemFx.warning("Values must be numbers!"); return; }
-				}
 			currentSystem.max(false, true);
 			currentSystem.setRate(speed_value);
 			currentSystem.getCurrentTransition().play();
 			currentSystem.setSystemName("MaxOnKey");
 			break;
 		case "MaxOnValue":
-			if(!local_enabled)
-				for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes()) {
-					try {
-						for (RecordFx record : node.getFromRDD().getRecords()) 
-							Double.parseDouble(record.getValue().toString());
-					} catch (NumberFormatException n) { DistributedSystemFx.warning("Values must be numbers!"); return; }
-				}
 			currentSystem.max(false, false);
 			currentSystem.setRate(speed_value);
 			currentSystem.getCurrentTransition().play();
@@ -306,26 +387,12 @@ public class MarvelController implements Initializable {
 			break;
 		
 		case "SumOnKey":
-			if(!local_enabled)
-				for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes()) {
-					try {
-						for (RecordFx record : node.getFromRDD().getRecords()) 
-							Double.parseDouble(record.getKey().toString());
-					} catch (NumberFormatException n) { DistributedSystemFx.warning("Values must be numbers!"); return; }
-				}
 			currentSystem.sum(false, true, false);
 			currentSystem.setRate(speed_value);
 			currentSystem.getCurrentTransition().play();
 			currentSystem.setSystemName("SumOnKey");
 			break;
 		case "SumOnValue":
-			if(!local_enabled)
-				for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes()) {
-					try {
-						for (RecordFx record : node.getFromRDD().getRecords()) 
-							Double.parseDouble(record.getValue().toString());
-					} catch (NumberFormatException n) { DistributedSystemFx.warning("Values must be numbers!"); return; }
-				}
 			currentSystem.sum(false, false, false);
 			currentSystem.setRate(speed_value);
 			currentSystem.getCurrentTransition().play();
@@ -372,13 +439,67 @@ public class MarvelController implements Initializable {
 	}
 
 
+	/**
+	 * Stops the running operation: its Spark jobs are cancelled.
+	 */
+	@FXML
+	private void cancel() {
+		if (runTask != null) runTask.cancel();
+	}
+	
+	/*
+	 * The progress of the task is shown in the toolbar, the dataset and the stages cannot change while it runs.
+	 * A cancelled task is over only when its background thread has returned from the orchestrator:
+	 * until then the controls stay disabled, then the cancelled action is executed.
+	 */
+	private void startTask(RunTask task, Runnable cancelled) {
+		runTask = task;
+		
+		progress_bar.progressProperty().bind(task.progressProperty());
+		progress_label.textProperty().bind(task.messageProperty());
+		progress_bar.setVisible(true);
+		progress_label.setVisible(true);
+		cancel_button.setDisable(false);
+		generate_button.setDisable(true);
+		stages.setDisable(true);
+		
+		task.setOnCancelled(event -> cancel_button.setDisable(true));
+		
+		Thread thread = new Thread(() -> {
+			try {
+				task.run();
+			} finally {
+				Platform.runLater(() -> {
+					if (!task.isCancelled()) return;
+					
+					endTask();
+					cancelled.run();
+				});
+			}
+		}, "marvel-run");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	private void endTask() {
+		runTask = null;
+		
+		progress_bar.progressProperty().unbind();
+		progress_label.textProperty().unbind();
+		progress_bar.setVisible(false);
+		progress_label.setVisible(false);
+		cancel_button.setDisable(true);
+		generate_button.setDisable(false);
+		stages.setDisable(false);
+	}
+
 	/**
 	 * Creates a snapshot of the system, increases the phase
 	 * and the result RDD becomes the working RDD of the new phase.
 	 */
 	@FXML
 	void done() {
-		if (!local_enabled)
+		if (currentSystem instanceof DistributedSystemFx)
 			if (currentSystem.toString().startsWith("RBK") || currentSystem.toString().startsWith("GroupByKey")) {
 				for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes())
 					node.removeTempRDDs();
@@ -390,29 +511,26 @@ public class MarvelController implements Initializable {
 		
 		if (currentSystem instanceof LocalSystemFx) ((LocalSystemFx) currentSystem).setTitle(currentSystem.toString());
 		
-		if(!local_enabled)
+		if (currentSystem instanceof DistributedSystemFx)
 			for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes())
 				if (node.getToRDD().size() == 0) numVoid++;
 
 		// if all the nodes 
 		if (numVoid == Integer.parseInt(nodes.getText())) return;
 
-		if (!local_enabled) ((DistributedSystemFx) currentSystem).overwriteFromRDD();
+		if (currentSystem instanceof DistributedSystemFx) ((DistributedSystemFx) currentSystem).overwriteFromRDD();
+		if (currentSystem instanceof CanvasSystemFx) ((CanvasSystemFx) currentSystem).overwriteFromRDD();
+		
+		orchestrator.commitStage(stageIndex(selectedStage));
 
-		TreeItem<SystemFx> crumb_currentSystem = new TreeItem<>(currentSystem);
+		TreeItem<StageSnapshot> crumb_currentSystem = new TreeItem<>(currentSystem.snapshot());
 		selectedStage.getChildren().clear();
 		selectedStage.getChildren().add(crumb_currentSystem);
 		stages.setSelectedCrumb(crumb_currentSystem);
 		selectedStage = crumb_currentSystem;
 		
-		if(!local_enabled)
-			for (NodeFx node : ((DistributedSystemFx) currentSystem).getNodes())
-				if (node.getFromRDD().size() == 0)
-	        		node.setColor(NodeFx.RED);
-	        	else
-	        		node.setColor(NodeFx.GREEN);
-		
-		setCurrentSystem(currentSystem.copy());
+		// the crumb keeps only the data of the stage, the system displaying it is built again
+		setCurrentSystem(crumb_currentSystem.getValue().view());
 		
 		initTransition();
 
@@ -429,6 +547,56 @@ public class MarvelController implements Initializable {
 	}
 
 	private String condition = ">", value = "0";
+	
+	/**
+	 * Checks the size of the dataset before anything is reset: -1 (the whole file) is permitted only with an input file.
+	 */
+	private boolean checkDatasize() {
+		int size;
+		
+		try {
+			size = Integer.parseInt(datasize.getText());
+		} catch (NumberFormatException e) {
+			SystemFx.warning("The size must be an integer!");
+			return false;
+		}
+		
+		if (size == -1 && input_file == null) {
+			SystemFx.warning("Size cannot be -1 if the input file is not selected.");
+			return false;
+		}
+		
+		if (size < -1) {
+			SystemFx.warning("The size must be positive, or -1 to read the whole file.");
+			return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Checks that the keys (or values) of the working RDD are numbers.
+	 */
+	private boolean checkNumeric(boolean onKey) {
+		if (!orchestrator.isNumeric(onKey)) {
+			DistributedSystemFx.warning("Values must be numbers!");
+			return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Index of the stage in the bread crumb bar, 0 for the generated input.
+	 */
+	private int stageIndex(TreeItem<StageSnapshot> stage) {
+		int index = 0;
+		
+		for (TreeItem<StageSnapshot> s = stage.getParent(); s != null; s = s.getParent())
+			index++;
+		
+		return index;
+	}
 
 	/**
 	 * Opens a window with the filter option. It should be called 
@@ -565,11 +733,13 @@ public class MarvelController implements Initializable {
 
 		keytype.getItems().add("String");
 		keytype.getItems().add("Integer");
+		keytype.getItems().add("Long");
 		keytype.getItems().add("Double");
 		keytype.getItems().add("-");
 
 		valuetype.getItems().add("String");
 		valuetype.getItems().add("Integer");
+		valuetype.getItems().add("Long");
 		valuetype.getItems().add("Double");
 		
 		done_button.setDisable(true);
@@ -592,7 +762,8 @@ public class MarvelController implements Initializable {
 		stages.setOnCrumbAction(
 				(event) -> {
 					selectedStage = event.getSelectedCrumb();
-					setCurrentSystem(selectedStage.getValue().copy());
+					orchestrator.selectStage(stageIndex(selectedStage));
+					setCurrentSystem(selectedStage.getValue().view());
 					done_button.setDisable(true);
 					run_button.setDisable(false);
 				});
@@ -609,6 +780,10 @@ public class MarvelController implements Initializable {
 		
 		canvas.setPrefWidth(canvas.getWidth() + 800);
 		
+		scrollpane.viewportBoundsProperty().addListener((observable, oldValue, newValue) -> updateViewport());
+		scrollpane.hvalueProperty().addListener((observable, oldValue, newValue) -> updateViewport());
+		scrollpane.vvalueProperty().addListener((observable, oldValue, newValue) -> updateViewport());
+		
 		try {
 			openLocalSystemDialog();
 		} catch (IOException e) {
@@ -631,8 +806,33 @@ public class MarvelController implements Initializable {
 
 		zoom_value = value;
 
+		// the canvas system draws itself at the zoom, only in the viewport
+		if (currentSystem instanceof CanvasSystemFx) {
+			((CanvasSystemFx) currentSystem).setZoom(zoom_value);
+			updateViewport();
+			return;
+		}
+		
 		currentSystem.setScaleX(zoom_value);
 		currentSystem.setScaleY(zoom_value);
+		currentSystem.setSummarized(zoom_value < SystemFx.SUMMARY_ZOOM);
+		
+		updateViewport();
+	}
+	
+	/**
+	 * Only the records in the visible area of the scroll pane are displayed.
+	 */
+	private void updateViewport() {
+		Bounds viewport = scrollpane.getViewportBounds();
+		
+		if (viewport == null) return;
+		
+		if (currentSystem instanceof CanvasSystemFx)
+			((CanvasSystemFx) currentSystem).setViewport(-viewport.getMinX(), -viewport.getMinY(), 
+					viewport.getWidth(), viewport.getHeight());
+		else
+			currentSystem.showRecords(scrollpane.localToScene(scrollpane.getLayoutBounds()));
 	}
 
 	@FXML
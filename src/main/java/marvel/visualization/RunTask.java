@@ -0,0 +1,99 @@
+package marvel.visualization;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import javafx.concurrent.Task;
+import marvel.orchestrator.Orchestrator;
+import scala.Tuple2;
+
+/**
+ * Computation of an operation by Spark on a background thread, so that the window keeps responding:
+ * the execution of the operation, its aggregate and, if required, the records of the result to display.
+ * The progress is the number of partitions computed by the Spark jobs of the task, and the message tells the phase.
+ * The systems are modified only by the handlers of the task, on the JavaFX Application Thread.
+ * A cancelled task stops before its next job, but the job running when it is cancelled may still complete.
+ *
+ * @author Francesco Palini
+ */
+
+public class RunTask extends Task<List<List<Tuple2<String, String>>>> {
+
+	private static final long POLL_MS = 100; // interval between the progress updates
+	private static int runs = 0;
+
+	private Orchestrator orchestrator;
+	private String operation, condition, value;
+	private Supplier<List<List<Tuple2<String, String>>>> result; // records of the result to display, null if not required
+	private String group;                                        // Spark job group of the task
+	private Tuple2<String, String> aggregate;
+
+	/**
+	 * @param result records of the result to display, fetched after the execution; null if they are not required.
+	 */
+	public RunTask(Orchestrator orchestrator, String operation, String condition, String value,
+			Supplier<List<List<Tuple2<String, String>>>> result) {
+		this.orchestrator = orchestrator;
+		this.operation = operation;
+		this.condition = condition;
+		this.value = value;
+		this.result = result;
+
+		group = "run-" + ++runs;
+	}
+
+	@Override
+	protected List<List<Tuple2<String, String>>> call() throws Exception {
+		orchestrator.setJobGroup(group);
+
+		Thread poller = new Thread(() -> {
+			try {
+				while (true) {
+					int[] progress = orchestrator.getProgress(group);
+
+					if (progress[1] > 0) updateProgress(progress[0], progress[1]);
+
+					Thread.sleep(POLL_MS);
+				}
+			} catch (InterruptedException e) { } // the task is over
+		}, "marvel-progress");
+
+		poller.setDaemon(true);
+		poller.start();
+
+		try {
+			if (isCancelled()) return null;
+
+			updateMessage(operation + ": computing");
+			long records = orchestrator.execute(operation, condition, value);
+
+			if (isCancelled()) return null;
+
+			if (Orchestrator.isAggregation(operation))
+				aggregate = orchestrator.getAggregate();
+
+			if (result == null || isCancelled()) return null;
+
+			updateMessage(operation + ": fetching " + records + " records");
+
+			return result.get();
+		} finally {
+			poller.interrupt();
+		}
+	}
+
+	/*
+	 * The running Spark jobs are stopped, so the background thread ends as soon as possible.
+	 */
+	@Override
+	protected void cancelled() {
+		orchestrator.cancel(group);
+	}
+
+	/**
+	 * Result of the operation if it is an aggregation not by key, null otherwise.
+	 */
+	public Tuple2<String, String> getAggregate() {
+		return aggregate;
+	}
+}
@@ -1,10 +1,14 @@
 package marvel.visualization.sparkfx;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javafx.scene.Group;
-import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
 
 /**
  * Class representing a block of records of an RDD, using components of JavaFX.
@@ -16,6 +20,10 @@ import javafx.scene.Node;
 public class BlockFx extends Group {
 
     private double height, width;
+    private ArrayList<RecordFx> records = new ArrayList<>(); // records of the block, in order
+    private Rectangle placeholder; // keeps the bounds of the block while some records are detached
+    private int firstShown = 0, lastShown = -1; // records in the scene graph, if the block is virtualized
+    private Group summary; // bar displayed in place of the records, if the block is summarized
     
 
     /**
@@ -23,17 +31,21 @@ public class BlockFx extends Group {
      * @param record the new record to insert.
      */
     public void addRecord(RecordFx record) {
-        int nRecords = getChildren().size();
+        int nRecords = records.size();
 
+        showAllRecords();
+        summary = null;
+        
         if (nRecords > 0) {
             // setting the coordinate y of the new record
-            RecordFx prevRecord = (RecordFx) getChildren().get(nRecords - 1);
+            RecordFx prevRecord = records.get(nRecords - 1);
             record.setLayoutY(prevRecord.getLayoutY() + RecordFx.HEIGHT);
         } else
             // first record, it must be set the width of the block
             incrWidth(-width + record.width());
 
         getChildren().add(record);
+        records.add(record);
         incrHeight(RecordFx.HEIGHT); // increasing the height of the block
     }
 
@@ -43,14 +55,94 @@ public class BlockFx extends Group {
      * @param index index of the record of the block.
      */
     public void removeRecord(int index) {
-        getChildren().remove(index);
+        showAllRecords();
+        summary = null;
+        
+        getChildren().remove(records.remove(index));
         incrHeight(-RecordFx.HEIGHT); // decreasing the height of the block
 
-        if (index < getChildren().size())
-            // there is a another record after the deleted one
-            for (int i = index; i < getChildren().size(); i++)
-                // move up all the records after the deleted one
-                getChildren().get(i).setLayoutY(-RecordFx.HEIGHT);
+        // move up all the records after the deleted one
+        for (int i = index; i < records.size(); i++)
+            records.get(i).setLayoutY(i * RecordFx.HEIGHT);
+    }
+    
+    
+    /**
+     * Keeps in the scene graph only the records from first to last (included), 
+     * the others are replaced by a placeholder with the size of the block.
+     * The records already shown are not detached and attached again.
+     */
+    public void showRecords(int first, int last) {
+    	first = Math.max(first, 0);
+    	last = Math.min(last, records.size()-1);
+    	
+    	if (placeholder == null || isSummarized()) {
+    		placeholder = new Rectangle(width, height, Color.TRANSPARENT);
+    		placeholder.setMouseTransparent(true);
+    		
+    		getChildren().clear();
+    		getChildren().add(placeholder);
+    		firstShown = 0;
+    		lastShown = -1;
+    	}
+    	
+    	// records leaving the viewport
+    	for (int i = firstShown; i <= lastShown; i++)
+    		if (i < first || i > last) getChildren().remove(records.get(i));
+    	
+    	// records entering the viewport
+    	for (int i = first; i <= last; i++)
+    		if (i < firstShown || i > lastShown) getChildren().add(records.get(i));
+    	
+    	firstShown = first;
+    	lastShown = last;
+    }
+    
+    
+    /**
+     * Puts all the records back in the scene graph, e.g. before an animation.
+     */
+    public void showAllRecords() {
+    	if (placeholder == null && !isSummarized()) return;
+    	
+    	placeholder = null;
+    	getChildren().setAll(records);
+    }
+    
+    
+    /**
+     * Replaces all the records with a single bar, showing the number of records, 
+     * the number of distinct keys and the range of the values.
+     */
+    public void showSummary() {
+    	if (isSummarized()) return;
+    	
+    	if (summary == null) {
+    		BlockSummary blockSummary = new BlockSummary();
+    		
+    		for (RecordFx record : records)
+    			blockSummary.add(record.getKey() == null ? null : record.getKey().toString(), record.getValue().toString());
+    		
+    		Rectangle bar = new Rectangle(width, height, blockSummary.getColor());
+    		bar.setStroke(Color.BLACK);
+    		bar.setUserData(blockSummary); // text of the tooltip of the system
+    		
+    		Text text = new Text(blockSummary.toString());
+    		text.setFont(Font.font(24));
+    		text.setLayoutX(5);
+    		text.setLayoutY(24);
+    		text.setMouseTransparent(true);
+    		
+    		summary = new Group(bar, text);
+    		summary.setClip(new Rectangle(width, height));
+    	}
+    	
+    	getChildren().clear();
+    	getChildren().add(summary);
+    }
+    
+    private boolean isSummarized() {
+    	return summary != null && summary.getParent() == this;
     }
 
     
@@ -73,12 +165,7 @@ public class BlockFx extends Group {
      * @return list of the records
      */
     public List<RecordFx> getRecords() {
-        List<RecordFx> records = new ArrayList<>();
-
-        for (Node n : getChildren())
-            records.add((RecordFx) n);
-
-        return records;
+        return Collections.unmodifiableList(records);
     }
     
     public double height() { return height; }
@@ -89,7 +176,7 @@ public class BlockFx extends Group {
     
     public void incrWidth(double dw) { width += dw; }
     
-    public int size() {return getChildren().size(); }
+    public int size() {return records.size(); }
     
     @Override
     public String toString() {
@@ -98,20 +185,24 @@ public class BlockFx extends Group {
     	if (size() == 0) return "[]";
     	
     	for (int i = 0; i < size()-1; i++)
-    		s += getChildren().get(i).toString() + ", ";
+    		s += records.get(i).toString() + ", ";
     		
-    	s += getChildren().get(size()-1) + "]";
+    	s += records.get(size()-1) + "]";
     	
     	return s;
     }
 
 
 	public boolean contains(RecordFx record) {
-		return getChildren().contains(record);
+		return records.contains(record);
 	}
 
 
 	public void removeRecord(RecordFx record) {
+		showAllRecords();
+		summary = null;
+		
 		getChildren().remove(record);
+		records.remove(record);
 	}
 }
@@ -0,0 +1,72 @@
+package marvel.visualization.sparkfx;
+
+import java.util.HashSet;
+
+import javafx.scene.paint.Color;
+import marvel.mapreduce.FieldType;
+
+/**
+ * Summary of the records of a block, displayed in place of the records when the system is zoomed out:
+ * number of records, number of distinct keys and range of the values.
+ *
+ * @author Francesco Palini
+ */
+
+public class BlockSummary {
+
+	private int count;
+	private HashSet<String> keys = new HashSet<>();
+	private String min, max;                   // range of the values, as strings
+	private double minNumber = Double.MAX_VALUE, maxNumber = -Double.MAX_VALUE;
+	private boolean numeric = true;            // true if all the values are numbers
+
+	public void add(String key, String value) {
+		count++;
+
+		if (key != null) keys.add(key);
+
+		if (min == null || value.compareTo(min) < 0) min = value;
+		if (max == null || value.compareTo(max) > 0) max = value;
+
+		if (numeric && FieldType.of(value).isNumeric()) {
+			minNumber = Math.min(minNumber, Double.parseDouble(value));
+			maxNumber = Math.max(maxNumber, Double.parseDouble(value));
+		}
+		else numeric = false;
+	}
+
+	public int getCount() { return count; }
+
+	public int getNumKeys() { return keys.size(); }
+
+	/**
+	 * Color of the bar, from cyan (all the keys are distinct, or there are no keys)
+	 * to red (all the records have the same key).
+	 */
+	public Color getColor() {
+		if (count <= 1 || keys.isEmpty()) return Color.CYAN;
+
+		return Color.CYAN.interpolate(Color.ORANGERED, (count - keys.size()) / (double) (count - 1));
+	}
+
+	/**
+	 * Range of the values, compared as numbers if all of them are numbers.
+	 */
+	public String range() {
+		if (count == 0) return "[]";
+
+		if (numeric)
+			return "[" + format(minNumber) + ", " + format(maxNumber) + "]";
+
+		return "[" + min + ", " + max + "]";
+	}
+
+	private static String format(double number) {
+		return number == Math.rint(number) ? (long) number + "" : number + "";
+	}
+
+	@Override
+	public String toString() {
+		return count + " records\n" + (keys.isEmpty() ? "no keys" : keys.size() + " keys") + "\nvalues " + range();
+	}
+}
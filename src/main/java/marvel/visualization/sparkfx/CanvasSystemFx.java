@@ -0,0 +1,419 @@
+package marvel.visualization.sparkfx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javafx.animation.ParallelTransition;
+import javafx.animation.Transition;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Button;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+import marvel.mapreduce.FieldType;
+import scala.Tuple2;
+
+/**
+ * Distributed system for large RDDs, drawn on a single Canvas instead of one JavaFX node per record.
+ * The records are plain tuples: only the nodes, blocks and records inside the viewport are drawn,
+ * and the record under the cursor is found from the layout (hit-testing), so the frame time
+ * and the memory depend on the visible area and not on the number of records.
+ *
+ * The system is not animated: the result of each operation is computed by Spark and set with {@link #setResult(List)}.
+ *
+ * @author Francesco Palini
+ */
+
+public class CanvasSystemFx extends SystemFx {
+
+	private static final double RECORD_HEIGHT = RecordFx.HEIGHT;
+	private static final double BLOCK_PADDING = RDDPartitionFx.BLOCK_PADDING;
+	private static final double RDD_PADDING = NodeFx.RDD_PADDING;
+	private static final double PADDING = DistributedSystemFx.PADDING;
+
+	private int nNodes, blocksize, rowsize;
+	private ArrayList<List<Tuple2<String, String>>> fromRDDs = new ArrayList<>(), toRDDs = new ArrayList<>();
+
+	private double zoom = 1;
+	private double viewX, viewY, viewWidth, viewHeight; // visible area, in pixels of the system
+	private double nodeWidth, nodeHeight;
+
+	private Canvas canvas = new Canvas();
+	private int[] selected; // (node, rdd, record) of the clicked record, rdd 0 for fromRDD and 1 for toRDD
+	private BlockSummary[][] summaries; // summaries of the blocks of each RDD (2 * node + rdd), computed when first drawn
+
+	public CanvasSystemFx(int nNodes, int blocksize, int rowsize) {
+		this.nNodes = nNodes;
+		this.blocksize = blocksize;
+		this.rowsize = rowsize;
+
+		for (int n = 0; n < nNodes; n++) {
+			fromRDDs.add(new ArrayList<>());
+			toRDDs.add(new ArrayList<>());
+		}
+
+		canvas.setOnMouseClicked(event -> {
+			int[] hit = hit(viewX + event.getX(), viewY + event.getY());
+			selected = hit == null ? null : new int[] { hit[0], hit[1], hit[2] };
+			redraw();
+		});
+
+		getChildren().add(canvas);
+		relayout();
+	}
+
+	/*
+	 * The partition p is placed on the node p % nNodes, as in DistributedSystemFx.
+	 */
+	@Override
+	public void createInput(List<List<Tuple2<String, String>>> partitions) {
+		fitWidth(partitions);
+
+		for (int p = 0; p < partitions.size(); p++)
+			fromRDDs.get(p % nNodes).addAll(partitions.get(p));
+
+		relayout();
+	}
+
+	/**
+	 * Result RDD of the last operation, as partitioned by Spark.
+	 */
+	public void setResult(List<List<Tuple2<String, String>>> partitions) {
+		fitWidth(partitions);
+
+		for (List<Tuple2<String, String>> rdd : toRDDs)
+			rdd.clear();
+
+		for (int p = 0; p < partitions.size(); p++)
+			toRDDs.get(p % nNodes).addAll(partitions.get(p));
+
+		relayout();
+	}
+
+	/**
+	 * The result RDD becomes the working RDD.
+	 */
+	public void overwriteFromRDD() {
+		fromRDDs = toRDDs;
+		toRDDs = new ArrayList<>();
+
+		// the lists of the old working RDDs may be shared with a StageSnapshot, so they are not reused
+		for (int n = 0; n < nNodes; n++)
+			toRDDs.add(new ArrayList<>());
+
+		selected = null;
+		relayout();
+	}
+
+	public boolean isEmpty() {
+		for (List<Tuple2<String, String>> rdd : fromRDDs)
+			if (!rdd.isEmpty()) return false;
+
+		return true;
+	}
+
+	public void setZoom(double zoom) {
+		this.zoom = zoom;
+		relayout();
+	}
+
+	/**
+	 * Visible area of the system, in pixels.
+	 */
+	public void setViewport(double x, double y, double width, double height) {
+		viewX = Math.max(0, x);
+		viewY = Math.max(0, y);
+		viewWidth = width;
+		viewHeight = height;
+
+		canvas.setLayoutX(viewX);
+		canvas.setLayoutY(viewY);
+		canvas.setWidth(viewWidth);
+		canvas.setHeight(viewHeight);
+
+		redraw();
+	}
+
+	private void fitWidth(List<List<Tuple2<String, String>>> partitions) {
+		if (TextWidths.maxWidth(partitions) + 10 > FieldFx.get_width())
+			FieldFx.set_width(FieldFx.DEFAULT_WIDTH + 40);
+	}
+
+	/*
+	 * All the nodes have the size of the largest one, as in DistributedSystemFx.relocate().
+	 */
+	private void relayout() {
+		double rddWidth = 2 * FieldFx.get_width();
+		double maxHeight = 0;
+
+		nodeWidth = RDD_PADDING + 2 * (RDD_PADDING + rddWidth);
+
+		for (int n = 0; n < nNodes; n++)
+			maxHeight = Math.max(maxHeight, Math.max(rddHeight(fromRDDs.get(n).size()), rddHeight(toRDDs.get(n).size())));
+
+		nodeHeight = Math.max(nodeWidth, maxHeight + 2 * RDD_PADDING);
+		summaries = new BlockSummary[2 * nNodes][];
+
+		int cols = Math.min(nNodes, rowsize);
+		int rows = (nNodes + cols - 1) / cols;
+
+		setPrefSize((cols * (nodeWidth + PADDING) + 20) * zoom, (rows * (nodeHeight + PADDING) + 20) * zoom);
+
+		redraw();
+	}
+
+	private double rddHeight(int nRecords) {
+		if (nRecords == 0) return 0;
+
+		int nBlocks = (nRecords + blocksize - 1) / blocksize;
+
+		return nRecords * RECORD_HEIGHT + (nBlocks - 1) * BLOCK_PADDING;
+	}
+
+	private double nodeX(int n) { return 20 + (n % Math.min(nNodes, rowsize)) * (nodeWidth + PADDING); }
+
+	private double nodeY(int n) { return 20 + (n / Math.min(nNodes, rowsize)) * (nodeHeight + PADDING); }
+
+	private double rddX(int rdd) { return rdd == 0 ? RDD_PADDING : 2 * (RDD_PADDING + FieldFx.get_width()); }
+
+	/**
+	 * Offset of the record from the top of its RDD.
+	 */
+	private double recordY(int r) {
+		return r * RECORD_HEIGHT + (r / blocksize) * BLOCK_PADDING;
+	}
+
+	private void redraw() {
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+
+		gc.clearRect(0, 0, viewWidth, viewHeight);
+		gc.save();
+		gc.translate(-viewX, -viewY);
+		gc.scale(zoom, zoom);
+
+		// visible area, in the coordinates of the layout
+		double minX = viewX / zoom, minY = viewY / zoom;
+		double maxX = (viewX + viewWidth) / zoom, maxY = (viewY + viewHeight) / zoom;
+
+		gc.setTextAlign(TextAlignment.CENTER);
+		gc.setTextBaseline(VPos.CENTER);
+		gc.setLineWidth(1);
+
+		for (int n = 0; n < nNodes; n++) {
+			double x = nodeX(n), y = nodeY(n);
+
+			if (x > maxX || x + nodeWidth < minX || y > maxY || y + nodeHeight < minY) continue;
+
+			gc.setFill(fromRDDs.get(n).isEmpty() ? NodeFx.RED : NodeFx.GREEN);
+			gc.fillRoundRect(x, y, nodeWidth, nodeHeight, 25, 25);
+			gc.setStroke(Color.BLACK);
+			gc.strokeRoundRect(x, y, nodeWidth, nodeHeight, 25, 25);
+
+			drawRDD(gc, n, 0, x + rddX(0), y + RDD_PADDING, minY, maxY);
+			drawRDD(gc, n, 1, x + rddX(1), y + RDD_PADDING, minY, maxY);
+		}
+
+		gc.restore();
+	}
+
+	/**
+	 * Draws the records of the RDD between minY and maxY.
+	 */
+	private void drawRDD(GraphicsContext gc, int n, int rdd, double x, double y, double minY, double maxY) {
+		List<Tuple2<String, String>> records = (rdd == 0 ? fromRDDs : toRDDs).get(n);
+		double fieldWidth = FieldFx.get_width();
+
+		// first visible record: the records before it are skipped without being visited
+		int first = (int) Math.max(0, (minY - y) / (blocksize * RECORD_HEIGHT + BLOCK_PADDING)) * blocksize;
+		
+		// zoomed out: a bar for each block, instead of its records
+		if (zoom < SUMMARY_ZOOM) {
+			for (int b = first / blocksize; b * blocksize < records.size() && y + recordY(b * blocksize) <= maxY; b++) {
+				BlockSummary summary = summary(n, rdd, b);
+				
+				gc.setFill(summary.getColor());
+				gc.fillRect(x, y + recordY(b * blocksize), 2 * fieldWidth, summary.getCount() * RECORD_HEIGHT);
+				gc.setStroke(Color.BLACK);
+				gc.strokeRect(x, y + recordY(b * blocksize), 2 * fieldWidth, summary.getCount() * RECORD_HEIGHT);
+			}
+			
+			return;
+		}
+
+		for (int r = first; r < records.size(); r++) {
+			double ry = y + recordY(r);
+
+			if (ry > maxY) break;
+			if (ry + RECORD_HEIGHT < minY) continue;
+
+			Tuple2<String, String> record = records.get(r);
+			boolean isSelected = selected != null && selected[0] == n && selected[1] == rdd && selected[2] == r;
+			double fx = x;
+
+			if (record._1 != null) {
+				drawField(gc, record._1, fx, ry, fieldWidth, isSelected);
+				fx += fieldWidth;
+			}
+
+			drawField(gc, record._2, fx, ry, fieldWidth, isSelected);
+		}
+	}
+
+	private void drawField(GraphicsContext gc, String text, double x, double y, double width, boolean isSelected) {
+		gc.setFill(isSelected ? Color.YELLOW : Color.CYAN);
+		gc.fillRect(x, y, width, RECORD_HEIGHT);
+		gc.setStroke(Color.BLACK);
+		gc.strokeRect(x, y, width, RECORD_HEIGHT);
+		gc.setFill(Color.BLACK);
+		gc.fillText(text, x + width/2, y + RECORD_HEIGHT/2, width - 4);
+	}
+
+	/**
+	 * Field at the given point of the system, in pixels.
+	 *
+	 * @return (node, rdd, record, field) with field 0 for the key and 1 for the value, or null if there is no field.
+	 */
+	private int[] hit(double px, double py) {
+		double x = px / zoom, y = py / zoom;
+		int cols = Math.min(nNodes, rowsize);
+		int c = (int) ((x - 20) / (nodeWidth + PADDING)), row = (int) ((y - 20) / (nodeHeight + PADDING));
+		int n = row * cols + c;
+
+		if (x < 20 || y < 20 || c >= cols || n >= nNodes) return null;
+
+		for (int rdd = 0; rdd < 2; rdd++) {
+			List<Tuple2<String, String>> records = (rdd == 0 ? fromRDDs : toRDDs).get(n);
+			double rx = x - nodeX(n) - rddX(rdd), ry = y - nodeY(n) - RDD_PADDING;
+			double blockHeight = blocksize * RECORD_HEIGHT + BLOCK_PADDING;
+
+			if (rx < 0 || ry < 0 || rx >= 2 * FieldFx.get_width()) continue;
+
+			int block = (int) (ry / blockHeight);
+			double inBlock = ry - block * blockHeight;
+
+			if (inBlock >= blocksize * RECORD_HEIGHT) return null; // between two blocks
+
+			int r = block * blocksize + (int) (inBlock / RECORD_HEIGHT);
+
+			if (r >= records.size()) return null;
+
+			boolean hasKey = records.get(r)._1 != null;
+
+			if (!hasKey && rx >= FieldFx.get_width()) return null;
+
+			return new int[] { n, rdd, r, hasKey && rx < FieldFx.get_width() ? 0 : 1 };
+		}
+
+		return null;
+	}
+
+	private BlockSummary summary(int n, int rdd, int block) {
+		List<Tuple2<String, String>> records = (rdd == 0 ? fromRDDs : toRDDs).get(n);
+		
+		if (summaries[2 * n + rdd] == null)
+			summaries[2 * n + rdd] = new BlockSummary[(records.size() + blocksize - 1) / blocksize];
+		
+		if (summaries[2 * n + rdd][block] == null) {
+			BlockSummary summary = new BlockSummary();
+			
+			for (Tuple2<String, String> record : records.subList(block * blocksize, Math.min(records.size(), (block + 1) * blocksize)))
+				summary.add(record._1, record._2);
+			
+			summaries[2 * n + rdd][block] = summary;
+		}
+		
+		return summaries[2 * n + rdd][block];
+	}
+
+	/*
+	 * The canvas is placed at the viewport, so the coordinates of the system are the pixels of the layout.
+	 */
+	@Override
+	protected String hoverText(MouseEvent event) {
+		int[] hit = hit(event.getX(), event.getY());
+
+		if (hit == null) return null;
+
+		return zoom < SUMMARY_ZOOM ? summary(hit[0], hit[1], hit[2] / blocksize).toString() : field(hit);
+	}
+
+	private String field(int[] hit) {
+		Tuple2<String, String> record = (hit[1] == 0 ? fromRDDs : toRDDs).get(hit[0]).get(hit[2]);
+
+		return hit[3] == 0 ? record._1 : record._2;
+	}
+
+	/*
+	 * The records are immutable tuples, and the lists of the working RDDs are not modified
+	 * once they are displayed, so the snapshot and its views share them.
+	 */
+	@Override
+	public StageSnapshot snapshot() {
+		int nNodes = this.nNodes, blocksize = this.blocksize, rowsize = this.rowsize;
+
+		return new StageSnapshot(toString(), new ArrayList<>(fromRDDs), snapshot -> {
+			CanvasSystemFx system = new CanvasSystemFx(nNodes, blocksize, rowsize);
+
+			for (int n = 0; n < nNodes; n++)
+				system.fromRDDs.set(n, Collections.unmodifiableList(snapshot.getPartitions().get(n)));
+
+			system.relayout();
+
+			return system;
+		});
+	}
+
+	/*
+	 * The operations are computed by Spark and their result is drawn by setResult: the operators
+	 * animate nothing, and return an empty transition that finishes as soon as it is played.
+	 */
+
+	private Transition result() {
+		ParallelTransition transition = new ParallelTransition();
+
+		setCurrentTransition(transition);
+
+		return transition;
+	}
+
+	@Override
+	public Transition swap() { return result(); }
+
+	@Override
+	public Transition filter(String condition, String value, boolean onKey, FieldType type) { return result(); }
+
+	@Override
+	public Transition split() { return result(); }
+
+	@Override
+	public Transition flatMapToPair() { return result(); }
+
+	@Override
+	public Transition count(boolean byKey) { return result(); }
+
+	@Override
+	public Transition min(boolean byKey, boolean onKey) { return result(); }
+
+	@Override
+	public Transition max(boolean byKey, boolean onKey) { return result(); }
+
+	@Override
+	public Transition sum(boolean byKey, boolean onKey, boolean isInteger) { return result(); }
+
+	@Override
+	public Transition search() { return new ParallelTransition(); }
+
+	@Override
+	public Transition reduceByKey(String operation, Button done_button) {
+		Transition transition = result();
+		transition.setOnFinished(event -> done_button.setDisable(false));
+
+		return transition;
+	}
+
+	@Override
+	public Transition groupByKey() { return result(); }
+}
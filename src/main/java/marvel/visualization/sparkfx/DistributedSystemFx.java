@@ -1,27 +1,29 @@
 package marvel.visualization.sparkfx;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.TreeSet;
+import java.util.function.Supplier;
 
 import org.apache.spark.HashPartitioner;
 
 import javafx.animation.*;
-import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
 import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
-import javafx.scene.control.Label;
 import javafx.scene.shape.LineTo;
 import javafx.scene.shape.MoveTo;
-import javafx.scene.text.Text;
 import javafx.util.Duration;
-import javafx.util.Pair;
+import marvel.mapreduce.FieldType;
+import marvel.model.Change;
+import marvel.model.Operator;
+import marvel.model.Operators;
+import marvel.model.Stage;
 import scala.Tuple2;
 
 public class DistributedSystemFx extends SystemFx {
@@ -54,42 +56,27 @@ public class DistributedSystemFx extends SystemFx {
 		getChildren().addAll(nodes);
 	}
 
-	public void createInput(List<Tuple2<String,String>> dataset) {
-		createRDD(dataset);
+	public void createInput(List<List<Tuple2<String,String>>> partitions) {
+		createRDD(partitions);
 		relocate();
 	}
 	
 	/*
-	 * It splits the dataset into blocks with size=blockSize, among the nodes.
+	 * Each partition of the dataset is placed on a node, the partition p on the node p % nNodes,
+	 * so the sizes of the nodes show the real balance of the data.
 	 */
-	public void createRDD(List<Tuple2<String,String>> dataset) {
-	
-		Iterator<Tuple2<String, String>> data_iterator = dataset.iterator();
+	public void createRDD(List<List<Tuple2<String,String>>> partitions) {
 		
-		for (Tuple2<String, String> t : dataset) {
-			if (new Text(t._1).getLayoutBounds().getWidth() + 10 > FieldFx.get_width() ||
-					new Text(t._2).getLayoutBounds().getWidth() + 10 > FieldFx.get_width()) {
-				
-				FieldFx.set_width(FieldFx.DEFAULT_WIDTH + 40);
-				
-				for (NodeFx n : nodes)
-					n.recompute_width();
-				
-				break;
-			}
+		if (TextWidths.maxWidth(partitions) + 10 > FieldFx.get_width()) {
+			FieldFx.set_width(FieldFx.DEFAULT_WIDTH + 40);
+			
+			for (NodeFx n : nodes)
+				n.recompute_width();
 		}
 
-		int recordCounter;
-		
-		while (data_iterator.hasNext()) 
-			for (NodeFx node : nodes) {
-				recordCounter = 0;
-				
-				while (data_iterator.hasNext() && recordCounter++ < blocksize) {
-					Tuple2<String, String> keyValue = data_iterator.next();
-					node.addRecordFromRDD(new RecordFx(keyValue._1, keyValue._2));
-				}
-			}	
+		for (int p = 0; p < partitions.size(); p++)
+			for (Tuple2<String, String> keyValue : partitions.get(p))
+				nodes.get(p % nNodes).addRecordFromRDD(new RecordFx(keyValue._1, keyValue._2));
 	}
 
 	/*
@@ -129,97 +116,41 @@ public class DistributedSystemFx extends SystemFx {
 
 	
 	/*
-	 * It copies the elements of the current system, into a new system, without side-effects.
+	 * The records of the working RDDs, without the JavaFX nodes of the system.
 	 */
-	public DistributedSystemFx copy() {
-		DistributedSystemFx system = new DistributedSystemFx(nNodes, blocksize, rowsize);
-		ArrayList<NodeFx> es = new ArrayList<>();
-		ArrayList<Label> ls = new ArrayList<>();
+	@Override
+	public StageSnapshot snapshot() {
+		List<List<Tuple2<String, String>>> partitions = new ArrayList<>(nNodes);
 
-		for (NodeFx n : nodes)
-			es.add(n.copy());
+		for (NodeFx node : nodes)
+			partitions.add(node.getFromRDD().getTuples());
 
-		system.nodes = es;
-		system.setHeight(height);
-		system.setWidth(width);
+		int nNodes = this.nNodes, blocksize = this.blocksize, rowsize = this.rowsize;
 
-		system.getChildren().clear();
+		return new StageSnapshot(toString(), partitions, snapshot -> view(nNodes, blocksize, rowsize, snapshot));
+	}
 
-		system.getChildren().addAll(es);
-		system.getChildren().addAll(ls);
+	private static DistributedSystemFx view(int nNodes, int blocksize, int rowsize, StageSnapshot snapshot) {
+		DistributedSystemFx system = new DistributedSystemFx(nNodes, blocksize, rowsize);
+
+		for (int i = 0; i < nNodes; i++) {
+			NodeFx node = system.nodes.get(i);
+
+			node.addRecordsFromRDD(snapshot.getPartitions().get(i));
+			node.setColor(node.getFromRDD().isEmpty() ? NodeFx.RED : NodeFx.GREEN);
+		}
+
+		system.relocate();
 
 		return system;
 	}
 	
 	public Transition min(boolean byKey, boolean onKey) {	
-		ParallelTransition systemTransition = new ParallelTransition();
-		systemTransition.getChildren().add(search());
-		SequentialTransition nodeTransition;
-		
-		String overallMin = null;
-		RecordFx overallMinRecord = null;
-	
-		for (NodeFx node : nodes) {
-			if (node.getFromRDD().isEmpty()) continue;
-			
-			nodeTransition = new SequentialTransition();
-			
-			ArrayList<Pair<String, String>> min_values = new ArrayList<>();	
-	
-			for (RecordFx record : node.getFromRDD().getRecords()) {
-				int index = byKey ? indexByKeyOf(record, node.getToRDD().getRecords()) : 0;
-				
-				if (byKey && index == -1) // new record key
-				{	
-					min_values.add(new Pair<>(record.getKey().toString(), record.getValue().toString()));
-					
-					nodeTransition.getChildren().add(node.addRecordToRDD(record.copy()));
-				} else { // record key found
-					String element1 = onKey ? record.getKey().toString() : record.getValue().toString();
-					
-					// if toRDD is empty it is an aggregate not by key
-					if (node.getToRDD().getRecords().isEmpty()) {
-						min_values.add(new Pair<>(record.getKey().toString(), record.getValue().toString()));
-						nodeTransition.getChildren().add(node.addRecordToRDD(record.copy()));
-						if (overallMin == null || 
-								Double.parseDouble(overallMin) > Double.parseDouble(element1)) {
-							overallMin = element1;
-							overallMinRecord = record;
-						}
-						
-						continue;
-					}
-					
-					RecordFx prevRecord = node.getToRDD().getRecords().get(index);
-					
-					String element2 = onKey ? min_values.get(index).getKey() : min_values.get(index).getValue();
-					
-					if (Double.parseDouble(element2) > Double.parseDouble(element1)) {
-						min_values.set(index, new Pair<>(record.getKey().toString(), record.getValue().toString()));
-					}
-					
-					System.out.println(overallMin);
-					
-					if (overallMin == null || Double.parseDouble(overallMin) > Double.parseDouble(element1)) {
-						overallMin = element1;
-						overallMinRecord = record;
-					}
-					
-					
-					String key = null;
-					if (!byKey) key = min_values.get(index).getKey();
-					
-					nodeTransition.getChildren().add(textUpdate(prevRecord, key, min_values.get(index).getValue()));
-				}
-			}
-			
-			systemTransition.getChildren().add(nodeTransition);
-		}
+		ParallelTransition systemTransition = new ParallelTransition(search());
 		
-		final String final_overallMin = overallMin;
-		final RecordFx final_overallMinRecord = overallMinRecord;
+		apply(systemTransition, () -> Operators.min(byKey, onKey));
 		
-		if (!byKey) systemTransition.setOnFinished( event -> information("The minimum value is: " + final_overallMin + "\nrecord: "+final_overallMinRecord));
+		if (!byKey) systemTransition.setOnFinished( event -> informAggregate("The minimum value is: " + aggregateField(onKey) + "\nrecord: " + aggregateToString()));
 		
 		setCurrentTransition(systemTransition);
 		
@@ -227,69 +158,11 @@ public class DistributedSystemFx extends SystemFx {
 	}
 	
 	public Transition max(boolean byKey, boolean onKey) {	
-		ParallelTransition systemTransition = new ParallelTransition();
-		systemTransition.getChildren().add(search());
-		SequentialTransition nodeTransition;
-		
-		RecordFx overallMaxRecord = null;
-		String overallMax = null;
-	
-		for (NodeFx node : nodes) {
-			if (node.getFromRDD().isEmpty()) continue;
-			
-			nodeTransition = new SequentialTransition();
-			
-			ArrayList<Pair<String, String>> max_values = new ArrayList<>();
-	
-			for (RecordFx record : node.getFromRDD().getRecords()) {
-				int index = byKey ? indexByKeyOf(record, node.getToRDD().getRecords()) : 0;
-				String element1 = onKey ? record.getKey().toString() : record.getValue().toString();
-				
-				if (byKey && index == -1) // new record key
-				{	
-					max_values.add(new Pair<String, String>(record.getKey().toString(), record.getValue().toString()));
-					
-					nodeTransition.getChildren().add(node.addRecordToRDD(record.copy()));
-				} else { // record key found
-					if (node.getToRDD().getRecords().isEmpty()) {
-						max_values.add(new Pair<String, String>(record.getKey().toString(), record.getValue().toString()));
-						nodeTransition.getChildren().add(node.addRecordToRDD(record.copy()));
-						if (overallMax == null || 
-								Double.parseDouble(overallMax) < Double.parseDouble(element1)) {
-							overallMax = element1;
-							overallMaxRecord = record;
-						}
-							
-						continue;
-					}
-					
-					RecordFx prevRecord = node.getToRDD().getRecords().get(index);
-					
-					String element2 = onKey ? max_values.get(index).getKey() : max_values.get(index).getValue();
-					
-					if (Double.parseDouble(element2) < Double.parseDouble(element1))
-						max_values.set(index, new Pair<>(record.getKey().toString(), record.getValue().toString()));
-					
-					if (overallMax == null || Double.parseDouble(overallMax) < Double.parseDouble(element1)) {
-						overallMax = element1;
-						overallMaxRecord = record;
-					}
-					
-					
-					String key = null;
-					if (!byKey) key = max_values.get(index).getKey();
-					
-					nodeTransition.getChildren().add(textUpdate(prevRecord, key, max_values.get(index).getValue()));
-				}
-			}
-			
-			systemTransition.getChildren().add(nodeTransition);
-		}
+		ParallelTransition systemTransition = new ParallelTransition(search());
 		
-		final String final_overallMax = overallMax;
-		final RecordFx final_overallMaxRecord = overallMaxRecord;
+		apply(systemTransition, () -> Operators.max(byKey, onKey));
 		
-		if (!byKey) systemTransition.setOnFinished( event -> information("The maximum value is: " + final_overallMax + "\nrecord: " + final_overallMaxRecord));
+		if (!byKey) systemTransition.setOnFinished( event -> informAggregate("The maximum value is: " + aggregateField(onKey) + "\nrecord: " + aggregateToString()));
 		
 		setCurrentTransition(systemTransition);
 		
@@ -298,65 +171,10 @@ public class DistributedSystemFx extends SystemFx {
 	
 	public Transition sum(boolean byKey, boolean onKey, boolean isInteger) {
 		ParallelTransition systemTransition = new ParallelTransition(search());
-		SequentialTransition nodeTransition;
 		
-		String overallSum = "0";
+		apply(systemTransition, () -> Operators.sum(byKey, onKey));
 		
-	
-		for (NodeFx node : nodes) {
-			if (node.getFromRDD().isEmpty()) continue;
-			
-			nodeTransition = new SequentialTransition();
-			
-			ArrayList<Pair<String, String>> sum_values = new ArrayList<>();
-	
-			for (RecordFx record : node.getFromRDD().getRecords()) {
-				int index = byKey ? indexByKeyOf(record, node.getToRDD().getRecords()) : 0;
-				
-				if (byKey && index == -1) // new record key
-				{	
-					sum_values.add(new Pair<String, String>(record.getKey().toString(), record.getValue().toString()));
-					
-					nodeTransition.getChildren().add(node.addRecordToRDD(record.copy()));
-				} else { // record key found	
-					String element = onKey ? record.getKey().toString() : record.getValue().toString();
-					
-					if (node.getToRDD().getRecords().isEmpty()) {
-						RecordFx r = new RecordFx(null, element);
-						
-						sum_values.add(new Pair<String, String>(null, r.getValue().toString()));
-						nodeTransition.getChildren().add(node.addRecordToRDD(r));
-						overallSum = isInteger ? Integer.parseInt(overallSum) + 
-									Integer.parseInt(element) + "" : 
-									Double.parseDouble(overallSum) + 
-									Double.parseDouble(element) + "";
-						continue;
-					}
-					
-					RecordFx prevRecord = node.getToRDD().getRecords().get(index);
-					
-					String new_value = isInteger ? Integer.parseInt(sum_values.get(index).getValue()) + 
-							Integer.parseInt(element) + "" : 
-							Double.parseDouble(sum_values.get(index).getValue()) + 
-							Double.parseDouble(element) + "";
-					
-					sum_values.set(index, new Pair<>(record.getKey().toString(), new_value));
-					
-					overallSum = isInteger ? Integer.parseInt(overallSum) + 
-							Integer.parseInt(element) + "" : 
-							Double.parseDouble(overallSum) + 
-							Double.parseDouble(element) + "";
-					
-					nodeTransition.getChildren().add(textUpdate(prevRecord, null, sum_values.get(index).getValue()));
-				}
-			}
-			
-			systemTransition.getChildren().add(nodeTransition);
-		}
-		
-		final String final_overallSum = overallSum;
-		
-		if (!byKey) systemTransition.setOnFinished( event -> information("The overall sum is: " + final_overallSum));
+		if (!byKey) systemTransition.setOnFinished( event -> informAggregate("The overall sum is: " + getAggregate()._2));
 		
 		setCurrentTransition(systemTransition);
 		
@@ -365,52 +183,10 @@ public class DistributedSystemFx extends SystemFx {
 
 	public Transition count(boolean byKey) {
 		ParallelTransition systemTransition = new ParallelTransition(search());
-		SequentialTransition nodeTransition;
 		
-		String overallCount = "0";
-	
-		for (NodeFx node : nodes) {
-			if (node.getFromRDD().isEmpty()) continue;
-			
-			nodeTransition = new SequentialTransition();
-			
-			ArrayList<Pair<String, String>> count_values = new ArrayList<>();
-	
-			for (RecordFx record : node.getFromRDD().getRecords()) {
-				int index = byKey ? indexByKeyOf(record, node.getToRDD().getRecords()) : 0;
-				
-				if (byKey && index == -1) // new record key
-				{	
-					RecordFx r = new RecordFx(record.getKey().toString(), "1");
-					count_values.add(new Pair<String, String>(r.getKey().toString(), r.getValue().toString()));
-					
-					nodeTransition.getChildren().add(node.addRecordToRDD(r));
-				} else { // record key found			
-					if (node.getToRDD().getRecords().isEmpty()) {
-						RecordFx r = new RecordFx(null, "1");
-						
-						count_values.add(new Pair<String, String>(null, "1"));
-						nodeTransition.getChildren().add(node.addRecordToRDD(r));
-						overallCount = Integer.parseInt(overallCount) + 1 + "";
-						continue;
-					}
-					
-					RecordFx prevRecord = node.getToRDD().getRecords().get(index);
-					
-					count_values.set(index, new Pair<>(record.getKey().toString(), Integer.parseInt(count_values.get(index).getValue()) + 1 + ""));
-					
-					overallCount = Integer.parseInt(overallCount) + 1 + "";
-					
-					nodeTransition.getChildren().add(textUpdate(prevRecord, null, count_values.get(index).getValue()));
-				}
-			}
-			
-			systemTransition.getChildren().add(nodeTransition);
-		}
+		apply(systemTransition, () -> Operators.count(byKey));
 		
-		final String final_overallCount = overallCount;
-		
-		if (!byKey) systemTransition.setOnFinished( event -> information("The overall count is: " + final_overallCount));
+		if (!byKey) systemTransition.setOnFinished( event -> informAggregate("The overall count is: " + getAggregate()._2));
 		
 		setCurrentTransition(systemTransition);
 		
@@ -495,48 +271,66 @@ public class DistributedSystemFx extends SystemFx {
 		HashPartitioner sparkPartitioner = new HashPartitioner(nNodes); 
 	     
 	    HashMap<Integer, ArrayList<RecordFx>> partitionsMap = new HashMap<>(); // records associated to new partitions
-	    HashMap<Integer, ArrayList<RecordFx>> nodesMap = new HashMap<>(); // record_paste associated to old partitions
 	    LinkedHashMap<RecordFx, RecordFx> recordsMap = new LinkedHashMap<>(); // record -> record_paste
 	    LinkedHashMap<RecordFx, RecordFx> recordsSortMap = new LinkedHashMap<>(); // record -> record_sort
+	    HashMap<RecordFx, String> keys = new HashMap<>(); // record (or record_paste) -> key, from the partitions
 
 	    // Computation of the partitions
-	    for (int n = 0; n < nodes.size(); n++)  
-	    	for (RecordFx record : nodes.get(n).getFromRDD().getRecords()) { 
-	    		int partition = sparkPartitioner.getPartition(record.getKey().toString()); 
+	    for (int n = 0; n < nodes.size(); n++) {
+	    	RDDPartitionFx rdd = nodes.get(n).getFromRDD();
+	    	
+	    	for (int i = 0; i < rdd.getNumRecords(); i++) {
+	    		RecordFx record = rdd.getRecord(i);
+	    		keys.put(record, rdd.getPartition().get(i)._1);
+	    		
+	    		int partition = sparkPartitioner.getPartition(keys.get(record)); 
 	    		
 	    		if (partitionsMap.get(partition) == null) partitionsMap.put(partition, new ArrayList<>());
 	    		
 	    		partitionsMap.get(partition).add(record);
 	    	}
+	    }
+	    
+	    // instant mode: the records are placed in their new partitions, with no animation
+	    if (isInstant()) {
+	    	for (int n = 0; n < nodes.size(); n++) {
+	    		if (partitionsMap.get(n) == null) continue;
+	    		
+	    		partitionsMap.get(n).sort(Comparator.comparing(keys::get));
+	    		
+	    		for (RecordFx record : partitionsMap.get(n)) {
+	    			RecordFx record_sort = record.copy();
+	    			record_sort.setOpacity(1);
+	    			nodes.get(n).addRecordToRDD(record_sort);
+	    		}
+	    	}
+	    	
+	    	relocate();
+	    	setCurrentTransition(systemTransition);
+	    	
+	    	return systemTransition;
+	    }
 	    
 	    // Paste of the records on the system
+	    ShufflePlanner planner = new ShufflePlanner(this, nodes);
+	    
 	    for (int n = 0; n < nNodes; n++) {
-	    	nodesMap.put(n, new ArrayList<>());
-	    	
 	    	for (RecordFx record : nodes.get(n).getFromRDD().getRecords()) {
 	    		RecordFx record_paste = record.copy();
 	    		record_paste.setOpacity(1);
 	    		getChildren().add(record_paste);
 	    		record.setVisible(false);
-	    		Bounds record_copy_bounds = getSystemBounds(record);
-	    		record_paste.setLayoutX(record_copy_bounds.getMinX());
-	    		record_paste.setLayoutY(record_copy_bounds.getMinY());
+	    		planner.paste(record, record_paste, n);
 	    		recordsMap.put(record, record_paste);
-	    		
-	    		nodesMap.get(n).add(record_paste);
+	    		keys.put(record_paste, keys.get(record));
 	    	}
 	    }
-	    
-	    ArrayList<Double> deltaHeights = new ArrayList<>();
-	    
-	    for (int n = 0; n < nNodes; n++)
-	    	deltaHeights.add(getSystemBounds(nodes.get(n)).getMinY());
 		
 	    // Sorting of the records (per partition) and fade in of them
 	    for (int n = 0; n < nodes.size(); n++) {	    	
 	    	if (partitionsMap.get(n) == null) continue;
 	    	
-	    	partitionsMap.get(n).sort((r1, r2) -> r1.getKey().compareTo(r2.getKey()));
+	    	partitionsMap.get(n).sort(Comparator.comparing(keys::get));
 
 	    	for (RecordFx record : partitionsMap.get(n)) {
 	    		RecordFx record_sort = record.copy();
@@ -549,40 +343,26 @@ public class DistributedSystemFx extends SystemFx {
 	    }
 
 	    relocate();
-	    
-	    for (int n = 0; n < nNodes; n++)
-	    	deltaHeights.set(n, getSystemBounds(nodes.get(n)).getMinY() - deltaHeights.get(n));
+	    planner.relocated();
 	    
 	    HashMap<String, ArrayList<RecordFx>> groupRecords = new HashMap<>();
 	    
-	   	for (int n = 0; n < nNodes; n++)
-	   		for (RecordFx record_paste : nodesMap.get(n)) {
-	   			if (groupRecords.get(record_paste.getKey().toString()) == null)
-	   				groupRecords.put(record_paste.getKey().toString(), new ArrayList<>());
-	   			
-	   			groupRecords.get(record_paste.getKey().toString()).add(record_paste);
-	   		}
+	   	for (RecordFx record_paste : recordsMap.values()) {
+	   		if (groupRecords.get(keys.get(record_paste)) == null)
+	   			groupRecords.put(keys.get(record_paste), new ArrayList<>());
+	   		
+	   		groupRecords.get(keys.get(record_paste)).add(record_paste);
+	   	}
 	   	
 	   	for (ArrayList<RecordFx> sameRecords : groupRecords.values()) {
 	   		nodeTransition = new ParallelTransition(new PauseTransition(Duration.millis(300)));
 	   		
 	   		for (RecordFx record_paste : sameRecords) {
-	    		record_paste.setLayoutY(record_paste.getLayoutY() + deltaHeights.get(findNode(nodesMap, record_paste)));
-	    		
 	    		TranslateTransition transTransition = new TranslateTransition(Duration.millis(3 * FieldFx.ANIMATION_MS), record_paste);
+	    		Point2D by = planner.move(record_paste, recordsSortMap.get(record_paste));
 	    		
-	    		double byX = getSystemBounds(recordsSortMap.get(record_paste)).getMinX() +
-						getSystemBounds(recordsSortMap.get(record_paste)).getWidth()/2 -
-							(getSystemBounds(record_paste).getMinX() +
-									getSystemBounds(record_paste).getWidth()/2);
-	    		
-	    		double byY = getSystemBounds(recordsSortMap.get(record_paste)).getMinY() +
-						getSystemBounds(recordsSortMap.get(record_paste)).getHeight()/2 -
-							(getSystemBounds(record_paste).getMinY() +
-									getSystemBounds(record_paste).getHeight()/2);
-	    		
-				transTransition.setByX(byX);
-				transTransition.setByY(byY);
+				transTransition.setByX(by.getX());
+				transTransition.setByY(by.getY());
 				
 				nodeTransition.getChildren().add(transTransition);
 				
@@ -600,38 +380,10 @@ public class DistributedSystemFx extends SystemFx {
 		return systemTransition;
 	}	
 	
-	private int findNode(HashMap<Integer, ArrayList<RecordFx>> nodesMap, RecordFx record) {
-		for (int n = 0; n < nodesMap.size(); n++) {
-			int index = nodesMap.get(n).indexOf(record);
-			if (index != -1)
-				return n;
-		}
-		
-		return -1;
-	}
-	
 	public Transition swap() {
+		ParallelTransition parTransition = new ParallelTransition(search());
 
-		ParallelTransition parTransition = new ParallelTransition();
-		parTransition.getChildren().add(search());
-		SequentialTransition swapTransition;
-
-		for (NodeFx node : nodes) {
-			if (node.getFromRDD().isEmpty()) continue;
-
-			swapTransition = new SequentialTransition();
-
-			for (RecordFx record : node.getFromRDD().getRecords()) {
-				RecordFx record_copy = record.copy();
-				FieldFx key = record_copy.getKey();
-				record_copy.setKey(new FieldFx(record_copy.getValue().toString()));
-				record_copy.setValue(new FieldFx(key.toString()));
-				
-				swapTransition.getChildren().add(node.addRecordToRDD(record_copy));
-			}
-
-			parTransition.getChildren().add(swapTransition);
-		}
+		apply(parTransition, Operators::swap);
 		
 		parTransition.setOnFinished((event) -> getDoneButton().setDisable(false));
 		
@@ -641,30 +393,10 @@ public class DistributedSystemFx extends SystemFx {
 	}
 	
 	public Transition split() {
-		ParallelTransition parTransition = new ParallelTransition();
-		parTransition.getChildren().add(search());
-		SequentialTransition splitTransition;
-
-		for (NodeFx node : nodes) {
-			if (node.getFromRDD().isEmpty()) continue;
-
-			splitTransition = new SequentialTransition();
-
-			for (RecordFx record : node.getFromRDD().getRecords()) {
-				String line = record.getValue().toString();
-				ParallelTransition lineTransition = new ParallelTransition();
-				for (String token : line.split(" ")) {
-					RecordFx record_copy = record.copy();
-					record_copy.setKey(new FieldFx(token.trim().toLowerCase()));
-					record_copy.setValue(new FieldFx("1"));
-					
-					lineTransition.getChildren().add(node.addRecordToRDD(record_copy));
-				}
-				splitTransition.getChildren().add(lineTransition);
-			}
+		ParallelTransition parTransition = new ParallelTransition(search());
 
-			parTransition.getChildren().add(splitTransition);
-		}
+		// the words of a line fade in together
+		apply(parTransition, Operators::split);
 		
 		parTransition.setOnFinished((event) -> getDoneButton().setDisable(false));
 		
@@ -673,32 +405,10 @@ public class DistributedSystemFx extends SystemFx {
 		return parTransition;
 	}
 
-	public Transition filter(String condition, String value, boolean onKey) {
-
-		ParallelTransition parTransition = new ParallelTransition();
-		parTransition.getChildren().add(search());
-		SequentialTransition filterTransition;
-
-		for (NodeFx node : nodes) {
-			if (node.getFromRDD().isEmpty()) continue;
-
-			filterTransition = new SequentialTransition();
-
-			for (RecordFx record : node.getFromRDD().getRecords()) {
-				String element = onKey ? record.getKey().toString() : record.getValue().toString();
-				
-				if (filterEval(condition, element, value))
-				{
-					Transition addTransition = node.addRecordToRDD(record.copy());
-
-					filterTransition.getChildren().add(addTransition);
-				}
-				else
-					filterTransition.getChildren().add(new PauseTransition(Duration.millis(2 * FieldFx.ANIMATION_MS)));
-			}
+	public Transition filter(String condition, String value, boolean onKey, FieldType type) {
+		ParallelTransition parTransition = new ParallelTransition(search());
 
-			parTransition.getChildren().add(filterTransition);
-		}
+		apply(parTransition, () -> Operators.filter(condition, value, onKey, type));
 		
 		parTransition.setOnFinished((event) -> getDoneButton().setDisable(false));
 		
@@ -709,34 +419,76 @@ public class DistributedSystemFx extends SystemFx {
 	
 	public void overwriteFromRDD() {
 		for (NodeFx node : nodes) {
-			node.getFromRDD().getChildren().remove(1, node.getFromRDD().size()+1);
-			
-			for (RecordFx record : node.getToRDD().getRecords())
-				node.addRecordFromRDD(record.copy());
-			
-			node.getToRDD().getChildren().remove(1, node.getToRDD().size()+1);
+			node.getFromRDD().clear();
+			node.addRecordsFromRDD(node.getToRDD().getTuples());
+			node.getToRDD().clear();
 		}
 	}
 
 	public Transition search() {
 		ParallelTransition systemTransition = new ParallelTransition();
-		SequentialTransition nodeTransition;
+		
+		if (isInstant()) return systemTransition;
 		
 		for (NodeFx node : nodes) {
 			if (node.getFromRDD().isEmpty()) continue;
-			
-			nodeTransition = new SequentialTransition();
 
-			for (RecordFx record : node.getFromRDD().getRecords())
-				nodeTransition.getChildren().add(record.getColorChange());
-
-			systemTransition.getChildren().add(nodeTransition);
+			systemTransition.getChildren().add(StepTransition.of(node.getFromRDD().getRecords(), StepTransition::colorChange));
 		}
 
 		return systemTransition;
 	}
+	
+	/**
+	 * Applies the operator to the working RDD of each node, with a step for each record.
+	 * The operator is created for each node, since it may keep a state.
+	 * Each record is computed when the animation reaches its step. In instant mode, where all the steps
+	 * are completed at once, the nodes are instead computed in parallel, since they are independent,
+	 * then their results are rendered in the order of the nodes.
+	 */
+	private void apply(ParallelTransition transition, Supplier<Operator> operator) {
+		List<NodeFx> active = new ArrayList<>();
+		List<Stage> stages = new ArrayList<>();
+		
+		for (NodeFx node : nodes) {
+			if (node.getFromRDD().isEmpty()) continue;
+			
+			active.add(node);
+			stages.add(new Stage(node.getFromRDD().getPartition(), node.getToRDD().getPartition(), operator.get()));
+		}
+		
+		if (!isInstant()) {
+			for (int n = 0; n < active.size(); n++) {
+				NodeFx node = active.get(n);
+				RDDPartitionFx output = node.getToRDD();
+				
+				addSteps(transition, stages.get(n), (index, change) -> render(output, change, node::addViewsToRDD));
+			}
+			
+			return;
+		}
+		
+		List<Change[]> changes = Stage.steps(stages);
+		
+		for (int n = 0; n < active.size(); n++) {
+			NodeFx node = active.get(n);
+			RDDPartitionFx output = node.getToRDD();
+			
+			addSteps(transition, changes.get(n), (index, change) -> render(output, change, node::addViewsToRDD));
+		}
+	}
 
 	public ArrayList<NodeFx> getNodes() { return nodes; }
+	
+	@Override
+	protected List<RDDPartitionFx> getPartitions() {
+		List<RDDPartitionFx> rdds = new ArrayList<>();
+		
+		for (NodeFx node : nodes)
+			rdds.addAll(node.getRDDs());
+		
+		return rdds;
+	}
 
 	public double height() { return height; }
 
@@ -751,46 +503,8 @@ public class DistributedSystemFx extends SystemFx {
 	@Override
 	public Transition groupByKey() {
 		ParallelTransition systemTransition = new ParallelTransition(search());
-		SequentialTransition nodeTransition;
-		TreeSet<String> values1, values2;
 		
-		for (NodeFx node : nodes) {
-			if (node.getFromRDD().isEmpty()) continue;
-			
-			nodeTransition = new SequentialTransition();
-			
-			ArrayList<Pair<String, String>> group_values = new ArrayList<>();
-			HashMap<String, TreeSet<String>> groups = new HashMap<>();
-	
-			for (RecordFx record : node.getFromRDD().getRecords()) {
-				int index = indexByKeyOf(record, node.getToRDD().getRecords());
-				
-				if (index == -1) // new record key
-				{	
-					groups.put(record.getKey().toString(), new TreeSet<>());
-					values1 = groups.get(record.getKey().toString());
-					values2 = stringToOrderedSet(record.getValue().toString());
-					values1.addAll(values2);
-					
-					RecordFx r = new RecordFx(record.getKey().toString(), values1.toString().substring(1, values1.toString().length()-1));
-					group_values.add(new Pair<String, String>(r.getKey().toString(), r.getValue().toString()));
-					
-					nodeTransition.getChildren().add(node.addRecordToRDD(r));
-				} else { // record key found	
-					
-					RecordFx prevRecord = node.getToRDD().getRecords().get(index);
-					
-					values1 = groups.get(record.getKey().toString());
-					values2 = stringToOrderedSet(record.getValue().toString());
-					values1.addAll(values2);
-					group_values.set(index, new Pair<>(record.getKey().toString(), values1.toString().substring(1, values1.toString().length()-1)));
-										
-					nodeTransition.getChildren().add(textUpdate(prevRecord, null, group_values.get(index).getValue()));
-				}
-			}
-			
-			systemTransition.getChildren().add(nodeTransition);
-		}
+		apply(systemTransition, Operators::groupByKey);
 		
 		setCurrentTransition(systemTransition);
 		
@@ -799,40 +513,9 @@ public class DistributedSystemFx extends SystemFx {
 
 	@Override
 	public Transition flatMapToPair() {
-		ParallelTransition parTransition = new ParallelTransition();
-		parTransition.getChildren().add(search());
-		SequentialTransition splitTransition;
-	
-		for (NodeFx node : nodes) {
-			if (node.getFromRDD().isEmpty()) continue;
-	
-			splitTransition = new SequentialTransition();
-	
-			for (RecordFx record : node.getFromRDD().getRecords()) {
-				ParallelTransition lineTransition = new ParallelTransition();
-				TreeSet<String> treeSet = stringToOrderedSet(record.getValue().toString());
-				
-				if (treeSet.size() < 2) {
-					splitTransition.getChildren().add(new PauseTransition(Duration.millis(2 * FieldFx.ANIMATION_MS)));
-					continue;
-				}
-				
-				String[] array = treeSet.toArray(new String[0]);
-				
-				for (int i = 0; i < treeSet.size()-1; i++) 
-					for (int j = i+1; j < treeSet.size(); j++) {
-						RecordFx record_copy = record.copy();
-						record_copy.setKey(new FieldFx(array[i]+", "+array[j]));
-						record_copy.setValue(new FieldFx("1"));
-					
-						lineTransition.getChildren().add(node.addRecordToRDD(record_copy));
-					}
-				
-				splitTransition.getChildren().add(lineTransition);
-			}
-	
-			parTransition.getChildren().add(splitTransition);
-		}
+		ParallelTransition parTransition = new ParallelTransition(search());
+
+		apply(parTransition, Operators::flatMapToPair);
 		
 		parTransition.setOnFinished((event) -> getDoneButton().setDisable(false));
 		
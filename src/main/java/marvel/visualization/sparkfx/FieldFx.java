@@ -7,7 +7,6 @@ import javafx.util.Duration;
 import javafx.animation.FillTransition;
 import javafx.scene.Node;
 import javafx.scene.control.Label;
-import javafx.scene.control.Tooltip;
 
 /**
  * Class representing a field of an RDD record, using components of JavaFX.
@@ -36,11 +35,6 @@ public class FieldFx extends StackPane implements Comparable<FieldFx> {
 
         cell = new Rectangle(width, HEIGHT, Color.CYAN);
         cell.setStroke(Color.BLACK);
-        Tooltip.install(cell, new Tooltip(value));
-        Tooltip.install(text, new Tooltip(value));
-
-        colorChange = new FillTransition(Duration.millis(ANIMATION_MS), cell);
-        colorChange.setToValue(Color.YELLOW);
 
         getChildren().addAll(cell, text);
 
@@ -48,11 +42,21 @@ public class FieldFx extends StackPane implements Comparable<FieldFx> {
         setPrefHeight(HEIGHT);
     }
 
-    public void setText(String s) { text.setText(s); Tooltip.install(text, new Tooltip(s)); }
+    public void setText(String s) { text.setText(s); }
     
     public Label getLabel() { return text; }
     
-    public FillTransition getColorChange() { return colorChange; }
+    /**
+     * Transition to yellow, created the first time the field is animated.
+     */
+    public FillTransition getColorChange() {
+    	if (colorChange == null) {
+    		colorChange = new FillTransition(Duration.millis(ANIMATION_MS), cell);
+    		colorChange.setToValue(Color.YELLOW);
+    	}
+    	
+    	return colorChange; 
+    }
     
     public Color getColor() { return (Color) cell.getFill(); }
     
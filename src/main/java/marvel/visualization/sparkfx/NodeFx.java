@@ -1,11 +1,15 @@
 package marvel.visualization.sparkfx;
 
-import javafx.animation.Transition;
+import java.util.ArrayList;
+import java.util.List;
+
 import javafx.scene.Group;
 import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
+import marvel.model.Change;
+import scala.Tuple2;
 
 public class NodeFx extends Group {
 
@@ -53,43 +57,39 @@ public class NodeFx extends Group {
     }
 
 
-    public NodeFx copy() {
-        NodeFx node = new NodeFx(getLayoutX(), getLayoutY(), id);
-        // node.setVisibleBg(container.isVisible());
-        
-        node.fromRDD.setBlocksize(fromRDD.getBlocksize());
-        node.toRDD.setBlocksize(toRDD.getBlocksize());
-        node.setColor((Color) container.getFill());
-
-        for (RecordFx record : fromRDD.getRecords())
-        	node.addRecordFromRDD(record.copy());
-        
-        for (RecordFx record : toRDD.getRecords())
-        	node.addRecordToRDD(record.copy());
-
-        return node;
-    }
+    /*
+     * The records are animated by the system, e.g. with StepTransition.fadeIn.
+     */
     
-    public Transition addRecordFromRDD(RecordFx record) {
+    public void addRecordFromRDD(RecordFx record) {
     	fromRDD.addRecord(record);
     	updateNodeHeight();
-    	
-    	return record.getFadeIn();
     }
     
-    public Transition addRecordToRDD(RecordFx record) {
+    public void addRecordsFromRDD(List<Tuple2<String, String>> tuples) {
+    	fromRDD.addRecords(tuples);
+    	updateNodeHeight();
+    }
+    
+    public void addRecordToRDD(RecordFx record) {
     	toRDD.addRecord(record);
     	updateNodeHeight();
+    }
+    
+    /**
+     * Creates the records added to the result RDD by the change, see RDDPartitionFx.addViews.
+     */
+    public RecordFx[] addViewsToRDD(Change change) {
+    	RecordFx[] records = toRDD.addViews(change);
+    	updateNodeHeight();
     	
-    	return record.getFadeIn();
+    	return records;
     }
     
-    public Transition removeRecordToRDD(RecordFx record) {
+    public void removeRecordToRDD(RecordFx record) {
     	toRDD.removeRecord(record);
     	
     	updateNodeHeight();
-    	
-    	return record.getFadeOut();
     }
     
     private void updateNodeHeight() {
@@ -169,4 +169,16 @@ public class NodeFx extends Group {
 	public double height() { return height; }
     public RDDPartitionFx getFromRDD() { return fromRDD; }
     public RDDPartitionFx getToRDD() { return toRDD; }
+    
+    /**
+     * The RDD partitions of the node, including the temporary ones of the shuffle.
+     */
+    public List<RDDPartitionFx> getRDDs() {
+    	List<RDDPartitionFx> rdds = new ArrayList<>();
+    	
+    	for (int c = 1; c < getChildren().size(); c++)
+    		rdds.add((RDDPartitionFx) getChildren().get(c));
+    	
+    	return rdds;
+    }
 }
@@ -1,13 +1,20 @@
 package marvel.visualization.sparkfx;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.scene.Group;
-import javafx.scene.Node;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
+import marvel.model.Change;
+import marvel.model.Partition;
+import scala.Tuple2;
 
 public class RDDPartitionFx extends Group {
 	
@@ -16,6 +23,10 @@ public class RDDPartitionFx extends Group {
 	private double height;
 	private int blocksize;
 	private Text title;
+	private ArrayList<BlockFx> blocks = new ArrayList<>();
+	private Partition partition = new Partition(); // data of the records, the RDD is its view
+	private ArrayList<RecordFx> records = new ArrayList<>(); // records of the blocks, in the order of the partition
+	private IdentityHashMap<RecordFx, Integer> recordIndex = new IdentityHashMap<>(); // record -> index
 	
 	public RDDPartitionFx() {
 		title = new Text("");
@@ -27,7 +38,40 @@ public class RDDPartitionFx extends Group {
 	}
 	
 	public void addRecord(RecordFx record) {
-		BlockFx lastBlock = size() == 0 ? null : (BlockFx) getChildren().get(size());
+		partition.add(new Tuple2<>(record.getKey() == null ? null : record.getKey().toString(), record.getValue().toString()));
+		addView(record);
+	}
+	
+	public void addRecords(List<Tuple2<String, String>> tuples) {
+		for (Tuple2<String, String> keyValue : tuples) {
+			partition.add(keyValue);
+			addView(new RecordFx(keyValue._1, keyValue._2));
+		}
+	}
+	
+	/**
+	 * Creates the records added to the partition by the change, with opacity 0.
+	 * 
+	 * @return the new records, to be faded in.
+	 */
+	public RecordFx[] addViews(Change change) {
+		RecordFx[] views = new RecordFx[change.size()];
+		
+		for (int i = 0; i < views.length; i++) {
+			Tuple2<String, String> keyValue = change.getRecords().get(i); // the partition may already hold later changes
+			
+			views[i] = new RecordFx(keyValue._1, keyValue._2);
+			addView(views[i]);
+		}
+		
+		return views;
+	}
+	
+	private void addView(RecordFx record) {
+		records.add(record);
+		recordIndex.put(record, records.size()-1);
+		
+		BlockFx lastBlock = blocks.isEmpty() ? null : blocks.get(blocks.size()-1);
 		if (lastBlock != null && lastBlock.size() < blocksize) {
 			lastBlock.addRecord(record);
 			height += RecordFx.HEIGHT;
@@ -42,41 +86,71 @@ public class RDDPartitionFx extends Group {
 	private void addBlock(BlockFx block) {
         if (size() > 0) {
             // if it isn't the first block of the RDD, move down the block
-        	BlockFx prevBlock = (BlockFx) getChildren().get(size());
+        	BlockFx prevBlock = blocks.get(blocks.size()-1);
             block.setLayoutY(prevBlock.getLayoutY() + prevBlock.height() + BLOCK_PADDING);
             height += BLOCK_PADDING + block.height();
         }
         else height = block.height();
 
         getChildren().add(block);
+        blocks.add(block);
     }
 
-    public ArrayList<BlockFx> getBlocks() {
-        ArrayList<BlockFx> blocks = new ArrayList<>();
-
-        for (Node b : getChildren())
-        	if (b instanceof BlockFx)
-        		blocks.add((BlockFx) b);
-
-        return blocks;
+    public List<BlockFx> getBlocks() {
+        return Collections.unmodifiableList(blocks);
     }
 
-    public ArrayList<RecordFx> getRecords() {
-        ArrayList<RecordFx> records = new ArrayList<>();
-
-        for (BlockFx block : getBlocks())
-            records.addAll(block.getRecords());
-
-        return records;
+    /**
+     * Records of the blocks, in order. The list is a view, updated as the records are added and removed.
+     */
+    public List<RecordFx> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+    
+    /**
+     * Keeps in the scene graph only the records intersecting the viewport, at the current zoom.
+     * 
+     * @param viewport the visible area, in the coordinates of the scene.
+     */
+    public void showRecords(Bounds viewport) {
+    	for (BlockFx block : blocks) {
+    		if (block.size() == 0) continue;
+    		
+    		Bounds bounds = block.localToScene(new BoundingBox(0, 0, block.width(), block.height()));
+    		
+    		if (!bounds.intersects(viewport)) {
+    			block.showRecords(0, -1);
+    			continue;
+    		}
+    		
+    		double recordHeight = bounds.getHeight() / block.size(); // height of a record in the scene
+    		
+    		block.showRecords((int) Math.floor((viewport.getMinY() - bounds.getMinY()) / recordHeight), 
+    				(int) Math.ceil((viewport.getMaxY() - bounds.getMinY()) / recordHeight));
+    	}
+    }
+    
+    public void showAllRecords() {
+    	for (BlockFx block : blocks)
+    		block.showAllRecords();
+    }
+    
+    public void showSummaries() {
+    	for (BlockFx block : blocks)
+    		block.showSummary();
     }
     
     public void clear() {
+    	blocks.clear();
+    	partition.clear();
+    	records.clear();
+    	recordIndex.clear();
     	height = 0;
     	getChildren().subList(1, size()+1).clear();
     }
     
     public double height() { return height; }
-	public int getNumRecords() { return getRecords().size(); }
+	public int getNumRecords() { return records.size(); }
 	public boolean isEmpty() { return size() == 0; }
 	public int size() {return getChildren().size() - 1; }
 	
@@ -102,39 +176,47 @@ public class RDDPartitionFx extends Group {
 		return blocksize;
 	}
 	
-	public RDDPartitionFx copy() {
-		RDDPartitionFx rdd = new RDDPartitionFx();
-		
-		rdd.setBlocksize(blocksize);
-		
-		for (RecordFx record : getRecords())
-			rdd.addRecord(record.copy());
-		
-		rdd.setTitle(title.getText());
-		
-		return rdd;
+	public Partition getPartition() {
+		return partition;
+	}
+	
+	/**
+	 * Keys and values of the records, as stored in a StageSnapshot.
+	 */
+	public List<Tuple2<String, String>> getTuples() {
+		return new ArrayList<>(partition.getRecords());
 	}
 
 	public void removeRecord(RecordFx record) {
 		getChildren().remove(record);
 		
-		BlockFx block;
+		// the indexes of the following records change
+		if (recordIndex.containsKey(record)) {
+			partition.remove(recordIndex.get(record));
+			records.remove(record);
+			recordIndex.clear();
+			
+			for (int i = 0; i < records.size(); i++)
+				recordIndex.put(records.get(i), i);
+		}
 		
-		for (Node n : getChildren()) 
-			if (n instanceof BlockFx) {
-				block = (BlockFx) n;
-				
-				if (block.contains(record))
-					block.removeRecord(record);
-			}
+		for (BlockFx block : blocks)
+			if (block.contains(record))
+				block.removeRecord(record);
 	}
 
+	public RecordFx getRecord(int index) {
+		return records.get(index);
+	}
+	
 	public int indexOf(RecordFx r) {
-		for (int i = 0; i < getRecords().size(); i++)
-			if (getRecords().get(i) == r)
-				return i;
+		Integer index = recordIndex.get(r);
 		
-		return -1;
+		return index == null ? -1 : index;
+	}
+
+	public String getTitle() {
+		return title.getText();
 	}
 
 	public void setTitle(String struct_title) {
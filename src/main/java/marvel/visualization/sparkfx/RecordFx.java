@@ -25,11 +25,6 @@ public class RecordFx extends HBox {
 
     public RecordFx(String k, String v) {
     	this.setOpacity(0);
-        fadeIn = new FadeTransition(Duration.millis(2 * FieldFx.ANIMATION_MS), this);
-        fadeIn.setToValue(1.0);
-        
-        fadeOut = new FadeTransition(Duration.millis(2 * FieldFx.ANIMATION_MS), this);
-        fadeOut.setToValue(0.0);
 
         value = new FieldFx(v);
         width = FieldFx.get_width();
@@ -69,9 +64,27 @@ public class RecordFx extends HBox {
     }
     
     
-    public FadeTransition getFadeIn() { return fadeIn; }
+    /*
+     * The transitions are created the first time the record is animated: most records are animated once or never.
+     */
+    
+    public FadeTransition getFadeIn() {
+    	if (fadeIn == null) {
+    		fadeIn = new FadeTransition(Duration.millis(2 * FieldFx.ANIMATION_MS), this);
+    		fadeIn.setToValue(1.0);
+    	}
+    	
+    	return fadeIn;
+    }
     
-    public FadeTransition getFadeOut() { return fadeOut; }
+    public FadeTransition getFadeOut() {
+    	if (fadeOut == null) {
+    		fadeOut = new FadeTransition(Duration.millis(2 * FieldFx.ANIMATION_MS), this);
+    		fadeOut.setToValue(0.0);
+    	}
+    	
+    	return fadeOut;
+    }
     
     public double width() { return width; }
     
@@ -97,6 +110,11 @@ public class RecordFx extends HBox {
     
     public void setColor(Color color) { value.setColor(color); }
     
+    public void setFieldsColor(Color color) {
+    	value.setColor(color);
+    	if (key != null) key.setColor(color);
+    }
+    
     // assumption: key and value have the same color
     public Color getColor() { return value.getColor(); }
     
@@ -0,0 +1,98 @@
+package marvel.visualization.sparkfx;
+
+import java.util.HashMap;
+import java.util.List;
+
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+import javafx.scene.Parent;
+
+/**
+ * Coordinates of the records moved by the shuffle, in the system. The nodes, the RDDs and the blocks
+ * are only laid out (or translated), so the origin of each of them is computed once from its parent,
+ * and the position of a record from the origin of its block: no bounds are transformed up the scene graph.
+ * The pasted records are children of the system, moved with the node they come from when the nodes are relocated.
+ *
+ * @author Francesco Palini
+ */
+
+class ShufflePlanner {
+
+	private Parent system;
+	private List<NodeFx> nodes;
+	private double[] nodesX, nodesY;                                   // layout of the nodes when the records are pasted
+	private HashMap<Parent, Point2D> origins = new HashMap<>();        // parent -> its origin in the system
+	private HashMap<RecordFx, Integer> sourceNodes = new HashMap<>();  // record_paste -> node of the record
+
+	ShufflePlanner(Parent system, List<NodeFx> nodes) {
+		this.system = system;
+		this.nodes = nodes;
+
+		nodesX = new double[nodes.size()];
+		nodesY = new double[nodes.size()];
+
+		for (int n = 0; n < nodes.size(); n++) {
+			nodesX[n] = nodes.get(n).getLayoutX();
+			nodesY[n] = nodes.get(n).getLayoutY();
+		}
+	}
+
+	/**
+	 * Places the copy of the record, a child of the system, where the record is.
+	 */
+	void paste(RecordFx record, RecordFx record_paste, int node) {
+		Point2D origin = origin(record.getParent());
+		Bounds bounds = record.getBoundsInParent();
+
+		record_paste.setLayoutX(origin.getX() + bounds.getMinX());
+		record_paste.setLayoutY(origin.getY() + bounds.getMinY());
+
+		sourceNodes.put(record_paste, node);
+	}
+
+	/**
+	 * The nodes have been relocated: the pasted records follow their nodes, the origins are computed again.
+	 */
+	void relocated() {
+		origins.clear();
+
+		for (RecordFx record_paste : sourceNodes.keySet()) {
+			int n = sourceNodes.get(record_paste);
+
+			record_paste.setLayoutX(record_paste.getLayoutX() + nodes.get(n).getLayoutX() - nodesX[n]);
+			record_paste.setLayoutY(record_paste.getLayoutY() + nodes.get(n).getLayoutY() - nodesY[n]);
+		}
+	}
+
+	/**
+	 * Translation moving the center of the pasted record on the center of the sorted one.
+	 */
+	Point2D move(RecordFx record_paste, RecordFx record_sort) {
+		Point2D from = center(record_paste), to = center(record_sort);
+
+		return new Point2D(to.getX() - from.getX(), to.getY() - from.getY());
+	}
+
+	private Point2D center(RecordFx record) {
+		Point2D origin = origin(record.getParent());
+		Bounds bounds = record.getBoundsInParent();
+
+		return new Point2D(origin.getX() + bounds.getMinX() + bounds.getWidth()/2, origin.getY() + bounds.getMinY() + bounds.getHeight()/2);
+	}
+
+	private Point2D origin(Parent parent) {
+		if (parent == system) return new Point2D(0, 0);
+
+		Point2D origin = origins.get(parent);
+
+		if (origin == null) {
+			Point2D parent_origin = origin(parent.getParent());
+
+			origin = new Point2D(parent_origin.getX() + parent.getLayoutX() + parent.getTranslateX(),
+					parent_origin.getY() + parent.getLayoutY() + parent.getTranslateY());
+			origins.put(parent, origin);
+		}
+
+		return origin;
+	}
+}
@@ -0,0 +1,65 @@
+package marvel.visualization.sparkfx;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import scala.Tuple2;
+
+/**
+ * Immutable data of a stage, kept in the bread crumb bar in place of the JavaFX nodes of its system:
+ * the records of the partitions as tuples and, for the local system, the titles and the lineage of the structs.
+ * The lists (and link arrays) of the earlier stages are never modified, so a snapshot shares them with the stages before it.
+ * The system of a stage is built by {@link #view()}, only when the stage is displayed.
+ *
+ * @author Francesco Palini
+ */
+
+public final class StageSnapshot {
+
+	private final String name;
+	private final List<List<Tuple2<String, String>>> partitions;                  // records of each node, or of each struct
+	private final List<String> titles;                                              // titles of the structs
+	private final List<long[]> lineage;                                             // for each struct: links to its records, see Lineage.getLinks
+	private final Function<StageSnapshot, SystemFx> view;
+
+	public StageSnapshot(String name, List<List<Tuple2<String, String>>> partitions, Function<StageSnapshot, SystemFx> view) {
+		this(name, partitions, Collections.emptyList(), Collections.emptyList(), view);
+	}
+
+	public StageSnapshot(String name, List<List<Tuple2<String, String>>> partitions, List<String> titles,
+			List<long[]> lineage, Function<StageSnapshot, SystemFx> view) {
+		this.name = name;
+		this.partitions = Collections.unmodifiableList(partitions);
+		this.titles = Collections.unmodifiableList(titles);
+		this.lineage = Collections.unmodifiableList(lineage);
+		this.view = view;
+	}
+
+	public List<List<Tuple2<String, String>>> getPartitions() {
+		return partitions;
+	}
+
+	public List<String> getTitles() {
+		return titles;
+	}
+
+	public List<long[]> getLineage() {
+		return lineage;
+	}
+
+	/**
+	 * A new system displaying the stage.
+	 */
+	public SystemFx view() {
+		SystemFx system = view.apply(this);
+		system.setSystemName(name);
+
+		return system;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
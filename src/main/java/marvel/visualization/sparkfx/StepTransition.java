@@ -0,0 +1,122 @@
+package marvel.visualization.sparkfx;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import javafx.animation.Transition;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
+
+/**
+ * Animation of a sequence of steps with the same duration, e.g. one step for each record of a partition.
+ * The steps are created while the playback advances, and not before it starts: only the current step
+ * is kept in memory, and at most {@link #MAX_STEPS_PER_PULSE} steps are created in a pulse.
+ * If the playback is ahead of the steps, the next pulses catch up; the last pulse completes all of them.
+ *
+ * @author Francesco Palini
+ */
+
+public class StepTransition extends Transition {
+
+	public static final int MAX_STEPS_PER_PULSE = 64;
+
+	/**
+	 * Duration of a step: a fade in, a color change or a text update of a record.
+	 */
+	public static final Duration STEP_DURATION = Duration.millis(2 * FieldFx.ANIMATION_MS);
+
+	/**
+	 * Effect of a step on the records, at the given fraction of the step.
+	 */
+	public interface Step {
+		void interpolate(double frac);
+	}
+
+	/**
+	 * A step with no effect, as a PauseTransition.
+	 */
+	public static final Step PAUSE = frac -> { };
+
+	private int nSteps;
+	private Iterator<Step> steps;
+	private Step step;         // current step
+	private int current = -1;  // index of the current step
+
+	public StepTransition(int nSteps, Iterator<Step> steps) {
+		this.nSteps = nSteps;
+		this.steps = steps;
+
+		setCycleDuration(STEP_DURATION.multiply(nSteps));
+	}
+
+	/**
+	 * A step for each element of the list, created when the playback reaches it.
+	 */
+	public static <T> StepTransition of(List<T> elements, Function<T, Step> step) {
+		Iterator<T> iterator = elements.iterator();
+
+		return new StepTransition(elements.size(), new Iterator<Step>() {
+			@Override
+			public boolean hasNext() { return iterator.hasNext(); }
+
+			@Override
+			public Step next() { return step.apply(iterator.next()); }
+		});
+	}
+
+	@Override
+	protected void interpolate(double frac) {
+		if (nSteps == 0) return;
+
+		double position = frac * nSteps;
+		int target = frac == 1 ? nSteps-1 : (int) position;
+		int created = 0;
+
+		// the steps before the target are completed, at most MAX_STEPS_PER_PULSE of them unless it is the last pulse
+		while (current < target && (created < MAX_STEPS_PER_PULSE || frac == 1)) {
+			if (step != null) step.interpolate(1);
+
+			step = steps.next();
+			current++;
+			created++;
+		}
+
+		if (current == target)
+			step.interpolate(frac == 1 ? 1 : position - target);
+	}
+
+	/*
+	 * Steps on the records, with the same effect of the transitions of RecordFx.
+	 */
+
+	public static Step fadeIn(RecordFx... records) {
+		return frac -> {
+			for (RecordFx record : records)
+				record.setOpacity(frac);
+		};
+	}
+
+	/**
+	 * The record becomes yellow and then goes back to its color, as RecordFx.getColorChange().
+	 */
+	public static Step colorChange(RecordFx record) {
+		Color color = record.getColor();
+
+		return frac -> record.setFieldsColor(color.interpolate(Color.YELLOW, frac < 0.5 ? 2 * frac : 2 * (1 - frac)));
+	}
+
+	/**
+	 * The texts of the record change in the middle of the step.
+	 *
+	 * @param keyText the new key, null to keep the key.
+	 */
+	public static Step textUpdate(RecordFx record, String keyText, String valueText) {
+		return frac -> {
+			if (frac < 0.5) return;
+
+			if (keyText != null) record.getKey().setText(keyText);
+			record.getValue().setText(valueText);
+		};
+	}
+}
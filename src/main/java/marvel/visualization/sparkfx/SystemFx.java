@@ -1,39 +1,130 @@
 package marvel.visualization.sparkfx;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Collections;
 import java.util.List;
-import java.util.TreeSet;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
-import javafx.animation.PauseTransition;
-import javafx.animation.SequentialTransition;
-import javafx.animation.Timeline;
+import javafx.animation.ParallelTransition;
 import javafx.animation.Transition;
 import javafx.geometry.Bounds;
 import javafx.scene.Node;
-import javafx.scene.Parent;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.shape.LineTo;
-import javafx.util.Duration;
+import marvel.mapreduce.FieldType;
+import marvel.model.Change;
+import marvel.model.Stage;
 import scala.Tuple2;
 
 public abstract class SystemFx extends Pane {
 	
+	/**
+	 * Zoom below which the blocks are displayed as summary bars instead of records.
+	 */
+	public static final double SUMMARY_ZOOM = 0.5;
+	
 	private String system_name;
 	private Transition currentTransition;
+	private Tuple2<String, String> aggregate; // result of an aggregation not by key, computed by Spark
 	
 	private double speed = 1.0;
+	private boolean virtualized = true; // records outside the viewport are detached from the scene graph
+	private boolean summarized = false; // blocks displayed as summary bars
+	private Tooltip tooltip = new Tooltip(); // shared by all the fields of the system
+	private boolean instant = false; // the operators compute their result with no animation
+	private boolean sampled = false; // the system displays only a sample of the records computed by Spark
+
+	public SystemFx() {
+		addEventHandler(MouseEvent.MOUSE_MOVED, event -> {
+			String text = hoverText(event);
+			
+			if (text == null) {
+				tooltip.hide();
+				return;
+			}
+			
+			tooltip.setText(text);
+			tooltip.show(this, event.getScreenX() + 10, event.getScreenY() + 10);
+		});
+		
+		addEventHandler(MouseEvent.MOUSE_EXITED, event -> tooltip.hide());
+	}
+	
+	/**
+	 * Text of the tooltip for the field (or the summary bar) under the cursor, null if there is none.
+	 */
+	protected String hoverText(MouseEvent event) {
+		for (Node node = event.getPickResult().getIntersectedNode(); node != null && node != this; node = node.getParent()) {
+			if (node instanceof FieldFx) return node.toString();
+			if (node.getUserData() instanceof BlockSummary) return node.getUserData().toString();
+		}
+		
+		return null;
+	}
 
-	abstract public void createInput(List<Tuple2<String, String>> dataset);
+	/**
+	 * Displays the records of the dataset, as they are partitioned by Spark.
+	 */
+	abstract public void createInput(List<List<Tuple2<String, String>>> partitions);
 
 	
 	public void setSystemName(String name) { system_name = name; }
 
 
-	abstract public SystemFx copy();
+	/**
+	 * Immutable data of the current stage, from which {@link StageSnapshot#view()} builds a new system.
+	 */
+	abstract public StageSnapshot snapshot();
+	
+	/**
+	 * RDD partitions displayed by the system.
+	 */
+	protected List<RDDPartitionFx> getPartitions() {
+		return Collections.emptyList();
+	}
+	
+	/**
+	 * Keeps in the scene graph only the records intersecting the viewport, 
+	 * the others are replaced by placeholders. It has no effect once the system is animated.
+	 * 
+	 * @param viewport the visible area, in the coordinates of the scene.
+	 */
+	public void showRecords(Bounds viewport) {
+		if (!virtualized) return;
+		
+		for (RDDPartitionFx rdd : getPartitions())
+			if (summarized)
+				rdd.showSummaries();
+			else
+				rdd.showRecords(viewport);
+	}
+	
+	/**
+	 * Level of detail: the blocks are displayed as summary bars, e.g. when the zoom is below {@link #SUMMARY_ZOOM}.
+	 * It takes effect with the next {@link #showRecords(Bounds)}.
+	 */
+	public void setSummarized(boolean summarized) {
+		this.summarized = summarized;
+	}
+	
+	public boolean isSummarized() {
+		return summarized;
+	}
+	
+	/**
+	 * Puts all the records back in the scene graph, since the animations move and measure them.
+	 */
+	public void showAllRecords() {
+		virtualized = false;
+		
+		for (RDDPartitionFx rdd : getPartitions())
+			rdd.showAllRecords();
+	}
 	
 	public double getSpeed() {
 		return speed;
@@ -44,39 +135,6 @@ public abstract class SystemFx extends Pane {
 		return system_name;
 	}
 
-	public boolean filterEval(String condition, String value1, String value2) {
-		Double value;
-
-		switch (condition) {
-		case ">":
-			value = value1.equals("null") ? Double.MIN_VALUE : Double.parseDouble(value1);
-			return value > Integer.parseInt(value2);
-		case "<":
-			value = value1.equals("null") ? Double.MAX_VALUE : Double.parseDouble(value1);
-			return value < Integer.parseInt(value2);
-		case "=":
-			if (value1.equals("null"))
-				return false;
-			return value1.equals(value2);
-		case "!=":
-			if (value1.equals("null"))
-				return true;
-			return !value1.equals(value2);
-		default:
-			return false;
-		}
-	}
-
-	public int indexByKeyOf(RecordFx record, ArrayList<RecordFx> records) {
-		int index = -1;
-		
-		for (int r = 0; r < records.size(); r++)
-			if (record.getKey().equals(records.get(r).getKey()))
-				index = r;
-		
-		return index;
-	}
-
 	public static void information(String message) {
 		Alert alert = new Alert(Alert.AlertType.INFORMATION);
 		alert.setHeaderText(message);
@@ -92,22 +150,81 @@ public abstract class SystemFx extends Pane {
 		alert.showAndWait();
 	}
 	
-	public Transition textUpdate(RecordFx record, String keyText, String valueText) {
-		Timeline timeline = new Timeline();
-
-		if (keyText != null) {
-			KeyValue kv1 = new KeyValue(record.getKey().getLabel().textProperty(), keyText);
-			KeyFrame kf1 = new KeyFrame(Duration.millis(FieldFx.ANIMATION_MS), kv1);
-
-			timeline.getKeyFrames().add(kf1);
+	/**
+	 * Instant mode: the operators compute the result records and place them at once, creating no transition
+	 * for the records. The transitions returned by the operators are empty, so they finish 
+	 * (and run their onFinished handler) as soon as they are played.
+	 */
+	public void setInstant(boolean instant) {
+		this.instant = instant;
+	}
+	
+	public boolean isInstant() {
+		return instant;
+	}
+	
+	/**
+	 * Adds to the transition a step for each element, created when the animation reaches it.
+	 * In instant mode the steps are created and completed at once.
+	 */
+	protected <T> void addSteps(ParallelTransition transition, List<T> elements, Function<T, StepTransition.Step> step) {
+		if (instant) {
+			for (T element : elements)
+				step.apply(element).interpolate(1);
+			
+			return;
 		}
+		
+		transition.getChildren().add(StepTransition.of(elements, step));
+	}
 
-		KeyValue kv2 = new KeyValue(record.getValue().getLabel().textProperty(), valueText);
-		KeyFrame kf2 = new KeyFrame(Duration.millis(FieldFx.ANIMATION_MS), kv2);
-
-		timeline.getKeyFrames().add(kf2);
+	/**
+	 * Adds to the transition a step for each input record of the stage: the stage applies the change 
+	 * of the record to the model when the step is created, then the system renders it.
+	 */
+	protected void addSteps(ParallelTransition transition, Stage stage, BiFunction<Integer, Change, StepTransition.Step> render) {
+		List<Integer> indexes = new AbstractList<Integer>() {
+			@Override
+			public Integer get(int index) { return index; }
+
+			@Override
+			public int size() { return stage.size(); }
+		};
+		
+		addSteps(transition, indexes, index -> render.apply(index, stage.step(index)));
+	}
+	
+	/**
+	 * Adds to the transition a step for each change, already applied to the model: the system renders it.
+	 */
+	protected void addSteps(ParallelTransition transition, Change[] changes, BiFunction<Integer, Change, StepTransition.Step> render) {
+		List<Integer> indexes = new AbstractList<Integer>() {
+			@Override
+			public Integer get(int index) { return index; }
+
+			@Override
+			public int size() { return changes.length; }
+		};
+		
+		addSteps(transition, indexes, index -> render.apply(index, changes[index]));
+	}
+	
+	/**
+	 * Animation of a change of the output RDD: the added records fade in, the updated record changes its texts.
+	 * 
+	 * @param added the records added to the output by the change, see RDDPartitionFx.addViews.
+	 */
+	protected static StepTransition.Step render(RDDPartitionFx output, Change change, Function<Change, RecordFx[]> added) {
+		if (change.isNone()) return StepTransition.PAUSE;
+		
+		if (change.isUpdate()) {
+			RecordFx record = output.getRecord(change.getIndex());
+			Tuple2<String, String> keyValue = change.getRecords().get(0);
+			
+			return StepTransition.textUpdate(record, record.getKey() == null ? null : keyValue._1, keyValue._2);
+		}
 		
-		return new SequentialTransition(timeline, new PauseTransition(Duration.millis(FieldFx.ANIMATION_MS)));
+		return StepTransition.fadeIn(added.apply(change));
 	}
 
 	public Transition getCurrentTransition() {
@@ -119,6 +236,52 @@ public abstract class SystemFx extends Pane {
 		currentTransition = t;
 	}
 
+	public void setAggregate(Tuple2<String, String> aggregate) {
+		this.aggregate = aggregate;
+	}
+	
+	public Tuple2<String, String> getAggregate() {
+		return aggregate;
+	}
+	
+	/**
+	 * The system displays only a sample of the records of the dataset, so the results of its animations
+	 * are partial, while the aggregate is computed by Spark on all the records.
+	 */
+	public void setSampled(boolean sampled) {
+		this.sampled = sampled;
+	}
+	
+	/**
+	 * Shows the aggregate computed by Spark at the end of the animation: if the system displays a sample,
+	 * the message tells that the aggregate is not the result of the animated records.
+	 */
+	protected void informAggregate(String message) {
+		if (sampled)
+			message += "\n\nComputed by Spark on all the records of the dataset: the animation processes"
+					+ " only the displayed sample, so its partial results differ.";
+		
+		information(message);
+	}
+	
+	/**
+	 * The aggregate, formatted as a record; "none" if there is no aggregate, e.g. the minimum of no records.
+	 */
+	public String aggregateToString() {
+		if (aggregate == null) return "none";
+		
+		return "(" + (aggregate._1 != null ? aggregate._1 + ", " : "") + aggregate._2 + ")";
+	}
+	
+	/**
+	 * The key or the value of the aggregate, "none" if there is no aggregate.
+	 */
+	public String aggregateField(boolean onKey) {
+		if (aggregate == null) return "none";
+		
+		return onKey ? aggregate._1 : aggregate._2;
+	}
+
 	public void setRate(double speed_value) {
 		speed = speed_value;
 		getCurrentTransition().setRate(speed);
@@ -149,7 +312,10 @@ public abstract class SystemFx extends Pane {
 	abstract public Transition swap();
 
 
-	abstract public Transition filter(String condition, String value, boolean b);
+	/**
+	 * @param type type of the filtered column, which the condition is evaluated with.
+	 */
+	abstract public Transition filter(String condition, String value, boolean onKey, FieldType type);
 
 
 	abstract public Transition split();
@@ -172,28 +338,6 @@ public abstract class SystemFx extends Pane {
 	
 	abstract public Transition groupByKey();
 	
-	public Bounds getSystemBounds(Node node) {
-		Parent parent = node.getParent();
-		Bounds bounds = node.getBoundsInParent();
-		
-		while (!parent.getClass().equals(this.getClass())) {
-			bounds = parent.localToParent(bounds);
-			parent = parent.getParent();
-		}
-		
-		return bounds;
-	}
-
-	public TreeSet<String> stringToOrderedSet(String stringArray) {
-		TreeSet<String> strings = new TreeSet<>();
-		
-		for (String s : stringArray.split(", "))
-		      strings.add(s);
-		
-		return strings;
-	}
-
-
 	abstract public Transition flatMapToPair();
 
 }
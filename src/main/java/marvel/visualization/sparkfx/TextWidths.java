@@ -0,0 +1,143 @@
+package marvel.visualization.sparkfx;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.application.Platform;
+import javafx.scene.text.Text;
+import scala.Tuple2;
+
+/**
+ * Widths of the texts of the fields, used to size FieldFx without a text layout for each record.
+ * The width of a string is the sum of the widths of its characters (the kerning is ignored):
+ * each character is measured once with a Text node, and the widths of the strings are cached.
+ * The caches are not synchronized: the widths are measured on the JavaFX Application Thread only.
+ *
+ * @author Francesco Palini
+ */
+
+public final class TextWidths {
+
+	/**
+	 * Fields measured to find the widest one.
+	 */
+	public enum Estimate {
+		ALL,     // all the fields
+		SAMPLE,  // at most SAMPLE_SIZE records, evenly spaced in the dataset
+		LONGEST  // the key and the value with the most characters
+	}
+
+	public static final int SAMPLE_SIZE = 1000;
+	private static final int MAX_CACHED = 100000; // strings in the cache
+
+	private static Estimate estimate = Estimate.ALL;
+
+	private static double[] ascii = new double[128]; // widths of the ASCII characters, 0 if not measured yet
+	private static HashMap<Character, Double> glyphs = new HashMap<>(); // widths of the other characters
+	private static LinkedHashMap<String, Double> strings = new LinkedHashMap<String, Double>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+			return size() > MAX_CACHED;
+		}
+	};
+
+	private TextWidths() { }
+
+	public static void setEstimate(Estimate e) { estimate = e; }
+
+	public static Estimate getEstimate() { return estimate; }
+
+	/**
+	 * Width of the string, with the default font of Text.
+	 */
+	public static double width(String s) {
+		checkThread();
+
+		if (s == null || s.isEmpty()) return 0;
+
+		Double width = strings.get(s);
+
+		if (width == null) {
+			width = 0.0;
+
+			for (int i = 0; i < s.length(); i++)
+				width += width(s.charAt(i));
+
+			strings.put(s, width);
+		}
+
+		return width;
+	}
+
+	private static double width(char c) {
+		if (c < 128) {
+			if (ascii[c] == 0) ascii[c] = measure(c);
+
+			return ascii[c];
+		}
+
+		Double width = glyphs.get(c);
+
+		if (width == null) {
+			width = measure(c);
+			glyphs.put(c, width);
+		}
+
+		return width;
+	}
+
+	private static void checkThread() {
+		if (!Platform.isFxApplicationThread())
+			throw new IllegalStateException("The widths of the texts are measured on the JavaFX Application Thread only");
+	}
+
+	private static double measure(char c) {
+		return new Text(String.valueOf(c)).getLayoutBounds().getWidth();
+	}
+
+	/**
+	 * Width of the widest key or value of the partitions, as estimated with the current {@link Estimate}.
+	 */
+	public static double maxWidth(List<List<Tuple2<String, String>>> partitions) {
+		checkThread();
+
+		double max = 0;
+
+		switch (estimate) {
+		case LONGEST:
+			String longestKey = null, longestValue = null;
+
+			for (List<Tuple2<String, String>> partition : partitions)
+				for (Tuple2<String, String> t : partition) {
+					if (t._1 != null && (longestKey == null || t._1.length() > longestKey.length())) longestKey = t._1;
+					if (t._2 != null && (longestValue == null || t._2.length() > longestValue.length())) longestValue = t._2;
+				}
+
+			return Math.max(width(longestKey), width(longestValue));
+		case SAMPLE:
+			long size = 0;
+
+			for (List<Tuple2<String, String>> partition : partitions)
+				size += partition.size();
+
+			long step = Math.max(1, size / SAMPLE_SIZE), i = 0;
+
+			for (List<Tuple2<String, String>> partition : partitions)
+				for (Tuple2<String, String> t : partition)
+					if (i++ % step == 0)
+						max = Math.max(max, Math.max(width(t._1), width(t._2)));
+
+			return max;
+		default:
+			for (List<Tuple2<String, String>> partition : partitions)
+				for (Tuple2<String, String> t : partition)
+					max = Math.max(max, Math.max(width(t._1), width(t._2)));
+
+			return max;
+		}
+	}
+}